@@ -0,0 +1,29 @@
+package gossip.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * ベンチマークを実行するメインクラス
+ * 全てのベンチマークでGCProfilerを有効にし，処理時間と合わせてアロケーションレートを出力する．
+ * 引数には実行するベンチマークを絞り込む正規表現を指定できる．
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        if (args.length == 0) {
+            builder.include("gossip\\..*Benchmark");
+        }
+        for (String pattern : args) {
+            builder.include(pattern);
+        }
+        Options options = builder
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
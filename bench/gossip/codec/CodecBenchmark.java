@@ -0,0 +1,85 @@
+package gossip.codec;
+
+import gossip.node.MemberDigest;
+import gossip.node.Node;
+import gossip.transport.Transport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * メッセージ1件あたりのエンコードとデコードのコストを計測するベンチマーク
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({ "BINARY", "SERIALIZATION" })
+    public WireFormat wireFormat;
+
+    @Param({ "0", "50" })
+    public int membersPerMessage;
+
+    @Param({ "false", "true" })
+    public boolean compactEncoding;// BINARYでアドレスを直前のノードとの差分で送るか
+
+    private MessageCodec codec;
+    private GossipMessage message;
+    private byte[] encoded;
+    private ByteBuffer encodedDirect;// 受信時と同様にダイレクトバッファに格納したメッセージ
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        codec = wireFormat.createCodec(compactEncoding, 0, Transport.MAX_DATAGRAM_SIZE);
+        List<MemberDigest> members = new ArrayList<>(membersPerMessage);
+        for (int i = 0; i < membersPerMessage; i++) {
+            members.add(new Node(addressOf(i + 1), 1000L + i).toDigest());
+        }
+        message = new GossipMessage(new Node(addressOf(0), 123456L), members);
+        encoded = codec.encode(message);
+        encodedDirect = ByteBuffer.allocateDirect(encoded.length);
+        encodedDirect.put(encoded).flip();
+    }
+
+    private static InetSocketAddress addressOf(int n) throws IOException {
+        byte[] address = { 10, 0, (byte) (n >>> 8), (byte) n };
+        return new InetSocketAddress(InetAddress.getByAddress(address), 7946);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return codec.encode(message);
+    }
+
+    @Benchmark
+    public GossipMessage decode() throws IOException {
+        return codec.decode(encoded, 0, encoded.length);
+    }
+
+    @Benchmark
+    public GossipMessage decodeDirectBuffer() throws IOException {
+        return codec.decode(encodedDirect);
+    }
+}
@@ -0,0 +1,103 @@
+package gossip.service;
+
+import gossip.clock.Clock;
+import gossip.clock.SystemClock;
+import gossip.config.GossipConfig;
+import gossip.executor.GossipExecutor;
+import gossip.transport.PacketHandler;
+import gossip.transport.Transport;
+
+import java.util.Random;
+import java.time.Duration;
+import java.nio.ByteBuffer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ベンチマーク用の動作環境
+ * 周期処理は実行せず，送信は破棄するため，計測対象のメソッドのみを直接呼び出せる．
+ */
+public class BenchmarkEnvironment implements GossipEnvironment {
+
+    private final GossipExecutor executor = new GossipExecutor() {
+        @Override
+        public Future<?> scheduleWithFixedDelay(Runnable task, Duration interval) {
+            return new CompletableFuture<Void>();
+        }
+
+        @Override
+        public Future<?> schedule(Runnable task, Duration delay) {
+            return new CompletableFuture<Void>();
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            // 送信処理は計測対象外のため実行しない
+        }
+
+        @Override
+        public Future<?> startBlockingLoop(String name, Runnable loop) {
+            return new CompletableFuture<Void>();
+        }
+    };
+
+    /**
+     * n番目のノードに割り当てるアドレスを返すメソッド
+     *
+     * @param n
+     * @return
+     */
+    public static InetSocketAddress addressOf(int n) {
+        byte[] address = { 10, (byte) (n >>> 16), (byte) (n >>> 8), (byte) n };
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(address), 7946);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public Clock getClock() {
+        return SystemClock.INSTANCE;
+    }
+
+    @Override
+    public GossipExecutor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public Transport createTransport(InetSocketAddress address, GossipConfig config) {
+        return new Transport() {
+            @Override
+            public void start(PacketHandler handler) {
+            }
+
+            @Override
+            public boolean send(InetSocketAddress target, ByteBuffer data) {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public Executor createEventDispatcher(InetSocketAddress address) {
+        // イベントの配送は計測対象外のため実行しない
+        return task -> {
+        };
+    }
+
+    @Override
+    public Random getRandom() {
+        return ThreadLocalRandom.current();
+    }
+}
@@ -0,0 +1,101 @@
+package gossip.service;
+
+import gossip.codec.GossipMessage;
+import gossip.config.GossipConfig;
+import gossip.node.MembershipSnapshot;
+import gossip.node.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 保持しているノード数に対するGossipServiceの各処理のコストを計測するベンチマーク
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GossipServiceBenchmark {
+
+    @Param({ "100", "1000", "10000", "100000" })
+    public int tableSize;
+
+    private GossipService gossipService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gossipService = createService(tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        gossipService.stop();
+    }
+
+    /**
+     * tableSize個のノードを保持するGossipServiceを作成するメソッド
+     * 故障検知のタイムアウトは計測中に発生しない長さにする．
+     *
+     * @param tableSize
+     * @return
+     */
+    static GossipService createService(int tableSize) {
+        GossipConfig gossipConfig = new GossipConfig(
+                Duration.ofHours(1),
+                Duration.ofHours(1),
+                Duration.ofMillis(500),
+                Duration.ofMillis(500),
+                3);
+        gossipConfig.logging = false;
+        GossipService gossipService = new GossipService(BenchmarkEnvironment.addressOf(0), gossipConfig, null,
+                new BenchmarkEnvironment());
+        for (int i = 1; i < tableSize; i++) {
+            InetSocketAddress address = BenchmarkEnvironment.addressOf(i);
+            gossipService.receivePeerMessage(new GossipMessage(new Node(address, 1)));
+        }
+        return gossipService;
+    }
+
+    @Benchmark
+    public void detectFailedNodes() {
+        gossipService.detectFailedNodes();
+    }
+
+    @Benchmark
+    public int selectPeersToUpdate() {
+        return gossipService.selectPeersToUpdate();
+    }
+
+    @Benchmark
+    public ArrayList<InetSocketAddress> getAliveMembers() {
+        return gossipService.getAliveMembers();
+    }
+
+    @Benchmark
+    public ArrayList<InetSocketAddress> getAllMembers() {
+        return gossipService.getAllMembers();
+    }
+
+    @Benchmark
+    public MembershipSnapshot getMembershipSnapshot() {
+        return gossipService.getMembershipSnapshot();
+    }
+}
@@ -0,0 +1,96 @@
+package gossip.service;
+
+import gossip.codec.GossipMessage;
+import gossip.node.MemberDigest;
+import gossip.node.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 複数スレッドから同時にメッセージを受信した場合の統合処理のスループットを計測するベンチマーク
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MergeBenchmark {
+    private static final int MESSAGES_PER_THREAD = 1024;
+
+    @Param({ "1000", "10000" })
+    public int tableSize;
+
+    @Param({ "0", "50" })
+    public int membersPerMessage;
+
+    private GossipService gossipService;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gossipService = GossipServiceBenchmark.createService(tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        gossipService.stop();
+    }
+
+    /**
+     * スレッドごとに用意する受信メッセージ
+     * シーケンス番号を増やしたメッセージを順に統合させる．
+     */
+    @State(Scope.Thread)
+    public static class ThreadMessages {
+        private final List<GossipMessage> messages = new ArrayList<>(MESSAGES_PER_THREAD);
+        private int index = 0;
+
+        @Setup(Level.Trial)
+        public void setUp(MergeBenchmark benchmark) {
+            int threadIndex = benchmark.threadCount.getAndIncrement();
+            for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                long sequenceNumber = (long) i * 64 + threadIndex + 2;
+                int senderIndex = 1 + (threadIndex * MESSAGES_PER_THREAD + i) % (benchmark.tableSize - 1);
+                Node sender = new Node(BenchmarkEnvironment.addressOf(senderIndex), sequenceNumber);
+                List<MemberDigest> members = new ArrayList<>(benchmark.membersPerMessage);
+                for (int j = 0; j < benchmark.membersPerMessage; j++) {
+                    int memberIndex = 1 + (senderIndex + j * 31) % (benchmark.tableSize - 1);
+                    members.add(new Node(BenchmarkEnvironment.addressOf(memberIndex), sequenceNumber)
+                            .toDigest());
+                }
+                messages.add(new GossipMessage(sender, members));
+            }
+        }
+
+        GossipMessage next() {
+            GossipMessage message = messages.get(index);
+            index = (index + 1) % MESSAGES_PER_THREAD;
+            return message;
+        }
+    }
+
+    @Benchmark
+    public void receivePeerMessage(ThreadMessages messages) {
+        gossipService.receivePeerMessage(messages.next());
+    }
+}
@@ -1,14 +1,11 @@
 package gossip;
 
 import gossip.config.GossipConfig;
+import gossip.log.AsyncLogWriter;
 import gossip.service.GossipService;
 
 import java.time.Duration;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.io.BufferedWriter;
-import java.io.File;
 import java.net.InetSocketAddress;
 
 /**
@@ -65,17 +62,8 @@ public class GossipMain {
      * @param file
      */
     private static void resetCSVFile(String filePath) {
-        File file = new File(filePath);
-        File parentDir = file.getParentFile();
-        // logディレクトリが存在しない場合，新たにディレクトリを作成する．
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs(); // ディレクトリを再帰的に作成
-        }
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            writer.write("");
-        } catch (IOException e) {
-            System.err.println("エラーが発生しました: " + e.getMessage());
-        }
+        // logディレクトリが存在しない場合は，書き込み時に作成される．
+        AsyncLogWriter.getDefault().reset(filePath);
     }
 
 }
@@ -0,0 +1,21 @@
+package gossip.clock;
+
+/**
+ * 現在時刻を提供するインターフェース
+ * シミュレーションでは仮想的な時刻に差し替える．
+ */
+public interface Clock {
+    /**
+     * 現在時刻をミリ秒で返すメソッド
+     *
+     * @return
+     */
+    long currentTimeMillis();
+
+    /**
+     * 経過時間の計測に使用する単調増加の時刻をナノ秒で返すメソッド
+     *
+     * @return
+     */
+    long nanoTime();
+}
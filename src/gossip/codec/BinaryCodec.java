@@ -0,0 +1,693 @@
+package gossip.codec;
+
+import gossip.node.MemberDigest;
+import gossip.node.Node;
+import gossip.node.NodeState;
+import gossip.state.AppStateDelta;
+import gossip.state.AppStateEntry;
+import gossip.transport.Transport;
+
+import java.util.List;
+import java.util.Arrays;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 独自のバイナリ形式でメッセージを変換するクラス
+ * リフレクションを使用せず，フィールドを直接バイト列に読み書きする．
+ * デコードは受信したバッファから直接行い，IPv4アドレスはキャッシュしたインスタンスを再利用する．
+ *
+ * <pre>
+ * header : magic(1) | version(1) | type(1) | flags(1)
+ * sender : addrLength(1) | address(4 or 16) | port(2) | sequence(varint) | incarnation(varint)
+ *          | stateVersion(varint)
+ * probe  : probeSequence(varint)                      ※PING，PING_REQ，ACKのみ
+ *          addrLength | address | port                ※PING_REQのみ
+ * members: count(varint)
+ *          | { addrLength | address | port | sequence(varint) | incarnation(varint) | state(1)
+ *            | stateVersion(varint) } * count
+ *          SYNCでは { addrLength | address | port | sequence(varint) | stateVersion(varint) } * count
+ * state  : ownerCount(varint)                         ※flagsにFLAG_APP_STATEがある場合のみ
+ *          | { addrLength | address | port | entryCount(varint)
+ *            | { keyLength(varint) | key(UTF-8) | version(varint) | valueLength+1(varint) | value(UTF-8) } * entryCount
+ *            } * ownerCount
+ *          valueLength+1が0の場合は削除されたキーを表す
+ * </pre>
+ *
+ * バージョン1のメッセージはmembersを持たず，バージョン2以前はincarnationとprobeを持たない．
+ * バージョン3以前はstateVersionとstateを持たない．
+ * flagsのFLAG_COMPLETEは，SYNCに送信元が保持している全ノードを載せたこと，
+ * または参加時に分割して送る全ノードの情報の最後のメッセージであることを表す．
+ *
+ * バージョン5では，メッセージごとに次のフラグで縮小した形式を選べる．
+ * いずれのフラグも使用しないメッセージはバージョン4として送るため，以前のノードとも通信できる．
+ * <pre>
+ * FLAG_ADDRESS_PREFIX : membersのアドレスを直前のノードのアドレスとの差分で送る
+ *                       tag(1) | address(共通部分以降) | port(2, 直前と同じ場合は省略)
+ *                       tagは IPv6(0x80) | 直前と同じポート番号(0x40) | 直前と共通する先頭のバイト数(下位5ビット)
+ * FLAG_COMPRESSED     : header以降を圧縮する
+ *                       header | rawLength(varint) | LZ4ブロック形式で圧縮したsender以降
+ * </pre>
+ * 直前のノードはメッセージ内の1つ前のノード情報で，受信の順序や欠落に影響されない．
+ */
+public class BinaryCodec implements MessageCodec {
+    public static final byte MAGIC = 0x47;// 'G'
+    public static final byte VERSION = 5;// 形式のバージョン
+    public static final int HEADER_SIZE = 4;
+    public static final byte FLAG_COMPLETE = 0x01;// 保持している全ノードを載せた
+    public static final byte FLAG_APP_STATE = 0x02;// アプリケーションの状態の差分を載せた
+    public static final byte FLAG_ADDRESS_PREFIX = 0x08;// アドレスを直前のノードとの差分で送った
+    public static final byte FLAG_COMPRESSED = 0x10;// sender以降を圧縮した
+    private static final byte VERSION_5_FLAGS = FLAG_ADDRESS_PREFIX | FLAG_COMPRESSED;
+    private static final byte BASE_VERSION = 4;// バージョン5のフラグを使用しない場合に送るバージョン
+
+    private final AddressCache addressCache = new AddressCache();
+    private final boolean compact;// アドレスを直前のノードとの差分で送るか
+    private final int compressionThreshold;// 圧縮するメッセージの最小バイト数．0の場合は圧縮しない
+    private final int maxMessageSize;// 展開を受け付ける最大バイト数
+
+    /**
+     * 縮小した形式を使用しないコンストラクタ
+     * 受信したメッセージは全ての形式を読み込める．
+     */
+    public BinaryCodec() {
+        this(false, 0, Transport.MAX_DATAGRAM_SIZE);
+    }
+
+    /**
+     * @param compact              アドレスを直前のノードとの差分で送るか
+     * @param compressionThreshold この大きさ以上のメッセージを圧縮する．0の場合は圧縮しない
+     * @param maxMessageSize       圧縮されたメッセージの展開後の最大バイト数．送信側が1つのメッセージに収める大きさを指定する
+     */
+    public BinaryCodec(boolean compact, int compressionThreshold, int maxMessageSize) {
+        this.compact = compact;
+        this.compressionThreshold = compressionThreshold;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @Override
+    public byte[] encode(GossipMessage message) throws IOException {
+        MessageType type = message.getType();
+        Node sender = message.getSender();
+        List<MemberDigest> members = message.getMembers();
+        List<AppStateDelta> appState = message.getAppState();
+        byte[] senderAddress = sender.getInetAddress().getAddress();
+        byte[] targetAddress = null;
+
+        int size = HEADER_SIZE + addressSize(senderAddress) + varLongSize(sender.getSequenceNumber())
+                + varLongSize(sender.getIncarnation()) + varLongSize(sender.getStateVersion())
+                + varLongSize(members.size());
+        if (type.isProbe()) {
+            size += varLongSize(message.getProbeSequence());
+        }
+        if (type == MessageType.PING_REQ) {
+            targetAddress = message.getProbeTarget().getAddress().getAddress();
+            size += addressSize(targetAddress);
+        }
+        MemberDigest previous = null;
+        for (MemberDigest member : members) {
+            size += estimateSize(type, member);
+            if (compact) {
+                size += compactAddressSize(previous, member) - addressSize(member);
+            }
+            previous = member;
+        }
+        byte flags = (byte) ((message.isComplete() ? FLAG_COMPLETE : 0) | (appState.isEmpty() ? 0 : FLAG_APP_STATE)
+                | (compact && !members.isEmpty() ? FLAG_ADDRESS_PREFIX : 0));
+        // キーと値はUTF-8への変換後の長さが必要なため，変換した結果を書き込みでも使用する
+        List<byte[]> strings = new ArrayList<>();
+        if (!appState.isEmpty()) {
+            size += varLongSize(appState.size());
+            for (AppStateDelta delta : appState) {
+                size += addressSize(delta.getOwner().getAddress().getAddress()) + varLongSize(delta.getEntries().size());
+                for (AppStateEntry entry : delta.getEntries()) {
+                    byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    byte[] value = entry.isDeleted() ? null : entry.getValue().getBytes(StandardCharsets.UTF_8);
+                    strings.add(key);
+                    strings.add(value);
+                    size += varLongSize(key.length) + key.length + varLongSize(entry.getVersion())
+                            + (value == null ? 1 : varLongSize(value.length + 1) + value.length);
+                }
+            }
+        }
+
+        byte[] data = new byte[size];
+        int position = 0;
+        data[position++] = MAGIC;
+        data[position++] = (flags & VERSION_5_FLAGS) != 0 ? VERSION : BASE_VERSION;
+        data[position++] = type.getCode();
+        data[position++] = flags;
+        position = writeAddress(data, position, senderAddress, sender.getPort());
+        position = writeVarLong(data, position, sender.getSequenceNumber());
+        position = writeVarLong(data, position, sender.getIncarnation());
+        position = writeVarLong(data, position, sender.getStateVersion());
+        if (type.isProbe()) {
+            position = writeVarLong(data, position, message.getProbeSequence());
+        }
+        if (targetAddress != null) {
+            position = writeAddress(data, position, targetAddress, message.getProbeTarget().getPort());
+        }
+        position = writeVarLong(data, position, members.size());
+        previous = null;
+        for (MemberDigest member : members) {
+            InetSocketAddress address = member.getSocketAddress();
+            if (compact) {
+                position = writeCompactAddress(data, position, previous, address);
+            } else {
+                position = writeAddress(data, position, address.getAddress().getAddress(), address.getPort());
+            }
+            position = writeVarLong(data, position, member.getSequenceNumber());
+            previous = member;
+            // SYNCではシーケンス番号の比較のみを行うため，インカーネーション番号と状態は省く
+            if (type != MessageType.SYNC) {
+                position = writeVarLong(data, position, member.getIncarnation());
+                data[position++] = (byte) member.getState().ordinal();
+            }
+            position = writeVarLong(data, position, member.getStateVersion());
+        }
+        if (!appState.isEmpty()) {
+            int index = 0;
+            position = writeVarLong(data, position, appState.size());
+            for (AppStateDelta delta : appState) {
+                InetSocketAddress owner = delta.getOwner();
+                position = writeAddress(data, position, owner.getAddress().getAddress(), owner.getPort());
+                position = writeVarLong(data, position, delta.getEntries().size());
+                for (AppStateEntry entry : delta.getEntries()) {
+                    byte[] key = strings.get(index++);
+                    byte[] value = strings.get(index++);
+                    position = writeBytes(data, position, key);
+                    position = writeVarLong(data, position, entry.getVersion());
+                    if (value == null) {
+                        position = writeVarLong(data, position, 0);
+                    } else {
+                        position = writeVarLong(data, position, value.length + 1);
+                        System.arraycopy(value, 0, data, position, value.length);
+                        position += value.length;
+                    }
+                }
+            }
+        }
+        if (compressionThreshold > 0 && size >= compressionThreshold) {
+            return compress(data);
+        }
+        return data;
+    }
+
+    /**
+     * エンコードしたメッセージのsender以降を圧縮するメソッド
+     *
+     * @param data
+     * @return 圧縮しても小さくならない場合はdata
+     */
+    private static byte[] compress(byte[] data) {
+        int rawLength = data.length - HEADER_SIZE;
+        int offset = HEADER_SIZE + varLongSize(rawLength);
+        byte[] compressed = new byte[offset + Lz4Block.maxCompressedLength(rawLength)];
+        int length = offset + Lz4Block.compress(data, HEADER_SIZE, rawLength, compressed, offset);
+        if (length >= data.length) {
+            return data;
+        }
+        compressed[0] = MAGIC;
+        compressed[1] = VERSION;
+        compressed[2] = data[2];
+        compressed[3] = (byte) (data[3] | FLAG_COMPRESSED);
+        writeVarLong(compressed, HEADER_SIZE, rawLength);
+        return Arrays.copyOf(compressed, length);
+    }
+
+    @Override
+    public GossipMessage decode(byte[] data, int offset, int length) throws IOException {
+        return decode(ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public GossipMessage decode(ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        Reader reader = new Reader(buffer, addressCache);
+        if (length < HEADER_SIZE) {
+            throw new IOException("Message too short: " + length + " bytes");
+        }
+        if (reader.readByte() != MAGIC) {
+            throw new IOException("Unknown message magic");
+        }
+        byte version = reader.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported message version: " + version);
+        }
+        MessageType type;
+        try {
+            type = MessageType.fromCode(reader.readByte());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        if (version < 3 && type != MessageType.GOSSIP) {
+            throw new IOException("Unsupported message type for version " + version + ": " + type);
+        }
+        byte flags = reader.readByte();
+        if (version < 5) {
+            flags &= ~VERSION_5_FLAGS;
+        }
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            byte[] raw = reader.decompress(maxMessageSize);
+            length = raw.length;
+            reader = new Reader(ByteBuffer.wrap(raw), addressCache);
+        }
+        boolean addressPrefix = (flags & FLAG_ADDRESS_PREFIX) != 0;
+
+        Node sender = new Node(reader.readAddress(), reader.readVarLong());
+        if (version == 1) {
+            return new GossipMessage(sender);
+        }
+        if (version >= 3) {
+            sender.updateIncarnation(reader.readVarLong());
+        }
+        if (version >= 4) {
+            sender.setStateVersion(reader.readVarLong());
+        }
+        long probeSequence = 0;
+        InetSocketAddress probeTarget = null;
+        if (type.isProbe()) {
+            probeSequence = reader.readVarLong();
+        }
+        if (type == MessageType.PING_REQ) {
+            probeTarget = reader.readAddress();
+        }
+
+        long count = reader.readVarLong();
+        // 1件あたり最低でも8バイト，アドレスを差分で送った場合は3バイトを使用するため，それを超える件数は不正とみなす
+        if (count > length / (addressPrefix ? 3 : 8)) {
+            throw new IOException("Invalid member count: " + count);
+        }
+        List<MemberDigest> members = new ArrayList<>((int) count);
+        for (int i = 0; i < count; i++) {
+            InetSocketAddress address = addressPrefix ? reader.readCompactAddress() : reader.readAddress();
+            long sequenceNumber = reader.readVarLong();
+            if (type == MessageType.SYNC) {
+                long stateVersion = version >= 4 ? reader.readVarLong() : 0;
+                members.add(new MemberDigest(address, sequenceNumber, 0, NodeState.ALIVE, stateVersion));
+                continue;
+            }
+            long incarnation = version >= 3 ? reader.readVarLong() : 0;
+            int state = reader.readByte();
+            long stateVersion = version >= 4 ? reader.readVarLong() : 0;
+            try {
+                members.add(new MemberDigest(address, sequenceNumber, incarnation, NodeState.fromCode(state),
+                        stateVersion));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        List<AppStateDelta> appState = Collections.emptyList();
+        if (version >= 4 && (flags & FLAG_APP_STATE) != 0) {
+            appState = readAppState(reader, length);
+        }
+        return new GossipMessage(type, sender, members, probeSequence, probeTarget,
+                (flags & FLAG_COMPLETE) != 0, appState);
+    }
+
+    /**
+     * アプリケーションの状態の差分を読み込むメソッド
+     *
+     * @param reader
+     * @param length
+     * @return
+     * @throws IOException
+     */
+    private static List<AppStateDelta> readAppState(Reader reader, int length) throws IOException {
+        long ownerCount = reader.readVarLong();
+        // 1件あたり最低でも8バイトを使用するため，それを超える件数は不正とみなす
+        if (ownerCount > length / 8) {
+            throw new IOException("Invalid owner count: " + ownerCount);
+        }
+        List<AppStateDelta> appState = new ArrayList<>((int) ownerCount);
+        for (int i = 0; i < ownerCount; i++) {
+            InetSocketAddress owner = reader.readAddress();
+            long entryCount = reader.readVarLong();
+            // 1件あたり最低でも3バイトを使用するため，それを超える件数は不正とみなす
+            if (entryCount > length / 3) {
+                throw new IOException("Invalid entry count: " + entryCount);
+            }
+            List<AppStateEntry> entries = new ArrayList<>((int) entryCount);
+            for (int j = 0; j < entryCount; j++) {
+                String key = reader.readString(reader.readVarLong());
+                long version = reader.readVarLong();
+                long valueLength = reader.readVarLong();
+                String value = valueLength == 0 ? null : reader.readString(valueLength - 1);
+                entries.add(new AppStateEntry(key, value, version));
+            }
+            appState.add(new AppStateDelta(owner, entries));
+        }
+        return appState;
+    }
+
+    @Override
+    public int estimateBaseSize() {
+        // IPv6アドレスと最大長のシーケンス番号，インカーネーション番号，状態の版番号，
+        // 死活確認の情報，ノード情報と状態の差分の件数を想定する
+        return HEADER_SIZE + (1 + 16 + 2) + 10 + 10 + 10 + 10 + (1 + 16 + 2) + 5 + 5;
+    }
+
+    @Override
+    public int estimateSize(MemberDigest member) {
+        InetSocketAddress address = member.getSocketAddress();
+        return addressSize(address.getAddress().getAddress()) + varLongSize(member.getSequenceNumber())
+                + varLongSize(member.getIncarnation()) + 1 + varLongSize(member.getStateVersion());
+    }
+
+    @Override
+    public int estimateSize(MessageType type, MemberDigest member) {
+        if (type == MessageType.SYNC) {
+            InetSocketAddress address = member.getSocketAddress();
+            return addressSize(address.getAddress().getAddress()) + varLongSize(member.getSequenceNumber())
+                    + varLongSize(member.getStateVersion());
+        }
+        return estimateSize(member);
+    }
+
+    @Override
+    public int estimateSize(MessageType type, MemberDigest previous, MemberDigest member) {
+        int size = estimateSize(type, member);
+        if (!compact) {
+            return size;
+        }
+        return size - addressSize(member) + compactAddressSize(previous, member);
+    }
+
+    @Override
+    public int estimateAppStateSize(InetSocketAddress owner) {
+        return addressSize(owner.getAddress().getAddress()) + 5;
+    }
+
+    @Override
+    public int estimateSize(AppStateEntry entry) {
+        // UTF-8では1文字が最大3バイトになる
+        int keyLength = 3 * entry.getKey().length();
+        int valueLength = entry.isDeleted() ? 0 : 3 * entry.getValue().length();
+        return varLongSize(keyLength) + keyLength + varLongSize(entry.getVersion())
+                + varLongSize(valueLength + 1) + valueLength;
+    }
+
+    /**
+     * アドレスを書き込んだ場合のバイト数を返すメソッド
+     *
+     * @param address
+     * @return
+     */
+    private static int addressSize(byte[] address) {
+        return 1 + address.length + 2;
+    }
+
+    private static int addressSize(MemberDigest member) {
+        return addressSize(member.getSocketAddress().getAddress().getAddress());
+    }
+
+    /**
+     * 直前のノードのアドレスとの差分として書き込んだ場合のバイト数を返すメソッド
+     *
+     * @param previous 先頭のノードの場合はnull
+     * @param member
+     * @return
+     */
+    private static int compactAddressSize(MemberDigest previous, MemberDigest member) {
+        InetSocketAddress address = member.getSocketAddress();
+        InetSocketAddress previousAddress = previous != null ? previous.getSocketAddress() : null;
+        byte[] bytes = address.getAddress().getAddress();
+        boolean samePort = previousAddress != null && previousAddress.getPort() == address.getPort();
+        return 1 + bytes.length - sharedPrefix(previousAddress, bytes) + (samePort ? 0 : 2);
+    }
+
+    /**
+     * 直前のアドレスと共通する先頭のバイト数を返すメソッド
+     * アドレスの種類が異なる場合は0を返す．
+     */
+    private static int sharedPrefix(InetSocketAddress previous, byte[] address) {
+        if (previous == null) {
+            return 0;
+        }
+        byte[] previousBytes = previous.getAddress().getAddress();
+        if (previousBytes.length != address.length) {
+            return 0;
+        }
+        int shared = 0;
+        while (shared < address.length && previousBytes[shared] == address[shared]) {
+            shared++;
+        }
+        return shared;
+    }
+
+    /**
+     * 直前のノードのアドレスとの差分としてアドレスとポート番号を書き込み，書き込み後の位置を返すメソッド
+     *
+     * @param data
+     * @param position
+     * @param previous 先頭のノードの場合はnull
+     * @param address
+     * @return
+     */
+    private static int writeCompactAddress(byte[] data, int position, MemberDigest previous,
+            InetSocketAddress address) {
+        InetSocketAddress previousAddress = previous != null ? previous.getSocketAddress() : null;
+        byte[] bytes = address.getAddress().getAddress();
+        int shared = sharedPrefix(previousAddress, bytes);
+        boolean samePort = previousAddress != null && previousAddress.getPort() == address.getPort();
+        data[position++] = (byte) ((bytes.length == 16 ? 0x80 : 0) | (samePort ? 0x40 : 0) | shared);
+        System.arraycopy(bytes, shared, data, position, bytes.length - shared);
+        position += bytes.length - shared;
+        if (!samePort) {
+            data[position++] = (byte) (address.getPort() >>> 8);
+            data[position++] = (byte) address.getPort();
+        }
+        return position;
+    }
+
+    /**
+     * アドレス長，アドレス，ポート番号を書き込み，書き込み後の位置を返すメソッド
+     *
+     * @param data
+     * @param position
+     * @param address
+     * @param port
+     * @return
+     */
+    private static int writeAddress(byte[] data, int position, byte[] address, int port) {
+        data[position++] = (byte) address.length;
+        System.arraycopy(address, 0, data, position, address.length);
+        position += address.length;
+        data[position++] = (byte) (port >>> 8);
+        data[position++] = (byte) port;
+        return position;
+    }
+
+    /**
+     * 長さとバイト列を書き込み，書き込み後の位置を返すメソッド
+     *
+     * @param data
+     * @param position
+     * @param bytes
+     * @return
+     */
+    private static int writeBytes(byte[] data, int position, byte[] bytes) {
+        position = writeVarLong(data, position, bytes.length);
+        System.arraycopy(bytes, 0, data, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    /**
+     * 可変長整数として書き込んだ場合のバイト数を返すメソッド
+     *
+     * @param value
+     * @return
+     */
+    static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * 可変長整数（LEB128）を書き込み，書き込み後の位置を返すメソッド
+     *
+     * @param data
+     * @param position
+     * @param value
+     * @return
+     */
+    static int writeVarLong(byte[] data, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * バッファから順にフィールドを読み込むクラス
+     * 絶対位置で読み込み，バッファのpositionは変更しない．
+     */
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private final AddressCache addressCache;
+        private final int end;
+        private int position;
+        private final byte[] previousAddress = new byte[16];// 直前に読み込んだノードのアドレス
+        private int previousLength = 0;// 直前に読み込んだノードのアドレス長．読み込んでいない場合は0
+        private int previousPort;// 直前に読み込んだノードのポート番号
+
+        Reader(ByteBuffer buffer, AddressCache addressCache) {
+            this.buffer = buffer;
+            this.addressCache = addressCache;
+            this.position = buffer.position();
+            this.end = buffer.limit();
+        }
+
+        byte readByte() throws IOException {
+            if (position >= end) {
+                throw new IOException("Message truncated");
+            }
+            return buffer.get(position++);
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String readString(long length) throws IOException {
+            if (length < 0 || length > end - position) {
+                throw new IOException("Message truncated");
+            }
+            byte[] bytes = new byte[(int) length];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(position + i);
+            }
+            position += bytes.length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 残りの全てのバイトを展開後のバイト数とLZ4ブロックとして展開するメソッド
+         *
+         * @param maxLength 展開後の最大バイト数
+         */
+        byte[] decompress(int maxLength) throws IOException {
+            long rawLength = readVarLong();
+            if (rawLength < 0 || rawLength > maxLength) {
+                throw new IOException("Invalid uncompressed length: " + rawLength);
+            }
+            byte[] raw = new byte[(int) rawLength];
+            int length = end - position;
+            if (buffer.hasArray()) {
+                Lz4Block.decompress(buffer.array(), buffer.arrayOffset() + position, length, raw);
+            } else {
+                byte[] compressed = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    compressed[i] = buffer.get(position + i);
+                }
+                Lz4Block.decompress(compressed, 0, length, raw);
+            }
+            position = end;
+            return raw;
+        }
+
+        /**
+         * 直前に読み込んだノードのアドレスとの差分として書き込まれたアドレスを読み込むメソッド
+         */
+        InetSocketAddress readCompactAddress() throws IOException {
+            int tag = readByte() & 0xFF;
+            int addressLength = (tag & 0x80) != 0 ? 16 : 4;
+            int shared = tag & 0x1F;
+            boolean samePort = (tag & 0x40) != 0;
+            if (shared > addressLength || (shared > 0 && previousLength != addressLength)
+                    || (samePort && previousLength == 0)) {
+                throw new IOException("Invalid address prefix: " + tag);
+            }
+            for (int i = shared; i < addressLength; i++) {
+                previousAddress[i] = readByte();
+            }
+            if (!samePort) {
+                previousPort = (readByte() & 0xFF) << 8 | (readByte() & 0xFF);
+            }
+            previousLength = addressLength;
+            if (addressLength == 4) {
+                int ip = (previousAddress[0] & 0xFF) << 24 | (previousAddress[1] & 0xFF) << 16
+                        | (previousAddress[2] & 0xFF) << 8 | (previousAddress[3] & 0xFF);
+                return addressCache.get(ip, previousPort);
+            }
+            return new InetSocketAddress(InetAddress.getByAddress(Arrays.copyOf(previousAddress, 16)), previousPort);
+        }
+
+        InetSocketAddress readAddress() throws IOException {
+            int addressLength = readByte();
+            if (addressLength != 4 && addressLength != 16) {
+                throw new IOException("Invalid address length: " + addressLength);
+            }
+            if (position + addressLength + 2 > end) {
+                throw new IOException("Message truncated");
+            }
+            int port = buffer.getShort(position + addressLength) & 0xFFFF;
+            if (addressLength == 4) {
+                int ip = buffer.getInt(position);
+                position += 4 + 2;
+                return addressCache.get(ip, port);
+            }
+            byte[] address = new byte[addressLength];
+            for (int i = 0; i < addressLength; i++) {
+                address[i] = buffer.get(position + i);
+            }
+            position += addressLength + 2;
+            return new InetSocketAddress(InetAddress.getByAddress(address), port);
+        }
+    }
+
+    /**
+     * デコードしたIPv4のアドレスを再利用するキャッシュ
+     * 同じノードのアドレスは多くのパケットに繰り返し現れるため，InetSocketAddressの生成を省く．
+     * アドレスとポート番号から位置を決め，衝突した場合は上書きする．
+     * 要素は不変のため，複数のスレッドから同期せずに読み書きしても，いずれかの正しい要素が見える．
+     */
+    private static class AddressCache {
+        private static final int SIZE = 4096;// 2の累乗
+
+        private final Entry[] entries = new Entry[SIZE];
+
+        InetSocketAddress get(int ip, int port) throws UnknownHostException {
+            long key = ((ip & 0xFFFFFFFFL) << 16) | port;
+            int index = (int) ((key * 0x9E3779B97F4A7C15L) >>> 52);
+            Entry entry = entries[index];
+            if (entry != null && entry.key == key) {
+                return entry.address;
+            }
+            byte[] address = { (byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip };
+            InetSocketAddress socketAddress = new InetSocketAddress(InetAddress.getByAddress(address), port);
+            entries[index] = new Entry(key, socketAddress);
+            return socketAddress;
+        }
+
+        private static class Entry {
+            final long key;// アドレスとポート番号をまとめた値
+            final InetSocketAddress address;
+
+            Entry(long key, InetSocketAddress address) {
+                this.key = key;
+                this.address = address;
+            }
+        }
+    }
+}
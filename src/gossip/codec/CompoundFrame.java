@@ -0,0 +1,124 @@
+package gossip.codec;
+
+import java.util.List;
+import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * 同じ宛先への複数のメッセージを1つのパケットにまとめる形式
+ * 各メッセージはコーデックでエンコードしたバイト列のまま格納するため，コーデックの種類によらない．
+ *
+ * <pre>
+ * header  : magic(1) | version(1) | type(1)=COMPOUND | flags(1)
+ * messages: count(varint) | { length(varint) | message(length) } * count
+ * </pre>
+ */
+public class CompoundFrame {
+    // ヘッダと件数のバイト数の見積もり．件数はUDPの最大サイズに収まる範囲のため3バイト以内になる
+    public static final int BASE_SIZE = BinaryCodec.HEADER_SIZE + 3;
+
+    private CompoundFrame() {
+    }
+
+    /**
+     * パケットがまとめられたメッセージかどうかを返すメソッド
+     * バッファのpositionは変更しない．
+     *
+     * @param packet
+     * @return
+     */
+    public static boolean isCompound(ByteBuffer packet) {
+        int position = packet.position();
+        return packet.remaining() >= BinaryCodec.HEADER_SIZE
+                && packet.get(position) == BinaryCodec.MAGIC
+                && packet.get(position + 2) == MessageType.COMPOUND.getCode();
+    }
+
+    /**
+     * メッセージ1件を追加した場合に増えるバイト数を返すメソッド
+     *
+     * @param message
+     * @return
+     */
+    public static int entrySize(byte[] message) {
+        return BinaryCodec.varLongSize(message.length) + message.length;
+    }
+
+    /**
+     * messagesのfromからtoの手前までを1つのパケットにまとめるメソッド
+     *
+     * @param messages
+     * @param from
+     * @param to
+     * @return
+     */
+    public static byte[] encode(List<byte[]> messages, int from, int to) {
+        int size = BinaryCodec.HEADER_SIZE + BinaryCodec.varLongSize(to - from);
+        for (int i = from; i < to; i++) {
+            size += entrySize(messages.get(i));
+        }
+        byte[] data = new byte[size];
+        int position = 0;
+        data[position++] = BinaryCodec.MAGIC;
+        data[position++] = BinaryCodec.VERSION;
+        data[position++] = MessageType.COMPOUND.getCode();
+        data[position++] = 0;
+        position = BinaryCodec.writeVarLong(data, position, to - from);
+        for (int i = from; i < to; i++) {
+            byte[] message = messages.get(i);
+            position = BinaryCodec.writeVarLong(data, position, message.length);
+            System.arraycopy(message, 0, data, position, message.length);
+            position += message.length;
+        }
+        return data;
+    }
+
+    /**
+     * まとめられたメッセージを1件ずつ取り出し，consumerに渡すメソッド
+     * 渡すバッファはpacketと内容を共有し，positionからlimitまでが1件のメッセージである．
+     * consumerの呼び出し後に同じバッファを次のメッセージに再利用する．
+     *
+     * @param packet
+     * @param consumer
+     * @throws IOException 形式が不正な場合．それまでのメッセージはconsumerに渡されている
+     */
+    public static void split(ByteBuffer packet, Consumer<ByteBuffer> consumer) throws IOException {
+        int end = packet.limit();
+        ByteBuffer message = packet.duplicate();
+        int position = packet.position() + BinaryCodec.HEADER_SIZE;
+        long[] value = new long[1];
+        position = readVarLong(packet, position, end, value);
+        long count = value[0];
+        // 各メッセージは少なくとも長さの1バイトを持つ
+        if (count < 0 || count > end - position) {
+            throw new IOException("Invalid compound message count: " + count);
+        }
+        for (long i = 0; i < count; i++) {
+            position = readVarLong(packet, position, end, value);
+            long length = value[0];
+            if (length < 0 || length > end - position) {
+                throw new IOException("Compound message truncated");
+            }
+            message.limit(position + (int) length).position(position);
+            consumer.accept(message);
+            position += (int) length;
+        }
+    }
+
+    private static int readVarLong(ByteBuffer packet, int position, int end, long[] value) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= end) {
+                throw new IOException("Compound message truncated");
+            }
+            byte b = packet.get(position++);
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                value[0] = result;
+                return position;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,133 @@
+package gossip.codec;
+
+import gossip.node.MemberDigest;
+import gossip.node.Node;
+import gossip.state.AppStateDelta;
+
+import java.util.List;
+import java.io.Serializable;
+import java.util.Collections;
+import java.net.InetSocketAddress;
+
+/**
+ * ノード間で送受信されるゴシップメッセージを表すクラス
+ * 送信元ノードの情報と，送信元が保持しているノード情報の要約を持つ．
+ * 死活確認のメッセージでは，確認の番号と確認対象のノードも持つ．
+ * SYNCでは，保持している全ノードを載せたかどうかも持つ．
+ * アプリケーションの状態の差分を相乗りさせることもできる．
+ */
+public class GossipMessage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final MessageType type;// メッセージの種類
+    private final Node sender;// 送信元のノード
+    private final List<MemberDigest> members;// 相乗りさせるノード情報の要約
+    private final long probeSequence;// 死活確認の番号
+    private final InetSocketAddress probeTarget;// PING_REQで確認を依頼するノード
+    private final boolean complete;// SYNCで保持している全ノードを載せたか
+    private final List<AppStateDelta> appState;// 相乗りさせるアプリケーションの状態の差分
+
+    public GossipMessage(MessageType type, Node sender, List<MemberDigest> members,
+            long probeSequence, InetSocketAddress probeTarget, boolean complete, List<AppStateDelta> appState) {
+        this.type = type;
+        this.sender = sender;
+        this.members = members;
+        this.probeSequence = probeSequence;
+        this.probeTarget = probeTarget;
+        this.complete = complete;
+        this.appState = appState;
+    }
+
+    public GossipMessage(MessageType type, Node sender, List<MemberDigest> members,
+            long probeSequence, InetSocketAddress probeTarget, boolean complete) {
+        this(type, sender, members, probeSequence, probeTarget, complete, Collections.emptyList());
+    }
+
+    public GossipMessage(MessageType type, Node sender, List<MemberDigest> members,
+            long probeSequence, InetSocketAddress probeTarget) {
+        this(type, sender, members, probeSequence, probeTarget, false);
+    }
+
+    public GossipMessage(Node sender, List<MemberDigest> members) {
+        this(MessageType.GOSSIP, sender, members, 0, null);
+    }
+
+    public GossipMessage(Node sender) {
+        this(sender, Collections.emptyList());
+    }
+
+    /**
+     * メッセージの種類のゲッター
+     *
+     * @return
+     */
+    public MessageType getType() {
+        return type;
+    }
+
+    /**
+     * 送信元ノードのゲッター
+     *
+     * @return
+     */
+    public Node getSender() {
+        return sender;
+    }
+
+    /**
+     * 相乗りさせたノード情報のゲッター
+     *
+     * @return
+     */
+    public List<MemberDigest> getMembers() {
+        return members;
+    }
+
+    /**
+     * 死活確認の番号のゲッター
+     *
+     * @return
+     */
+    public long getProbeSequence() {
+        return probeSequence;
+    }
+
+    /**
+     * 確認を依頼するノードのゲッター
+     *
+     * @return
+     */
+    public InetSocketAddress getProbeTarget() {
+        return probeTarget;
+    }
+
+    /**
+     * 保持している全ノードを載せたかどうかのゲッター
+     * falseの場合，載っていないノードを受信側が知っている可能性がある．
+     *
+     * @return
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * 相乗りさせたアプリケーションの状態の差分のゲッター
+     *
+     * @return
+     */
+    public List<AppStateDelta> getAppState() {
+        // 差分を持たない旧バージョンからデシリアライズした場合はnullになる
+        return appState != null ? appState : Collections.emptyList();
+    }
+
+    /**
+     * アプリケーションの状態の差分を相乗りさせたメッセージを返すメソッド
+     *
+     * @param appState
+     * @return
+     */
+    public GossipMessage withAppState(List<AppStateDelta> appState) {
+        return new GossipMessage(type, sender, members, probeSequence, probeTarget, complete, appState);
+    }
+}
@@ -0,0 +1,197 @@
+package gossip.codec;
+
+import java.io.IOException;
+
+/**
+ * LZ4のブロック形式で圧縮と展開を行うクラス
+ * 圧縮は4バイトのハッシュ表による貪欲な一致探索のみを行い，圧縮率より速度を優先する．
+ *
+ * <pre>
+ * sequence: token(1) | literalLength(0以上) | literals | offset(2, リトルエンディアン) | matchLength(0以上)
+ * </pre>
+ *
+ * tokenの上位4ビットはリテラル長，下位4ビットは一致長から4を引いた値で，15の場合は続くバイトを255未満になるまで加算する．
+ * 最後のsequenceはリテラルのみで，offset以降を持たない．
+ */
+final class Lz4Block {
+    private static final int MIN_MATCH = 4;// 一致として扱う最短の長さ
+    private static final int LAST_LITERALS = 5;// 末尾でリテラルとして残すバイト数
+    private static final int MF_LIMIT = 12;// 一致を開始できる末尾からの最短距離
+    private static final int HASH_LOG = 12;// ハッシュ表の大きさの2の対数
+    private static final int MAX_DISTANCE = 0xFFFF;// 一致を参照できる最大の距離
+
+    private Lz4Block() {
+    }
+
+    /**
+     * 圧縮後の最大のバイト数を返すメソッド
+     *
+     * @param length
+     * @return
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * srcのsrcOffsetからlengthバイトを圧縮してdstのdstOffsetから書き込むメソッド
+     * dstにはmaxCompressedLength(length)バイトの空きが必要である．
+     *
+     * @param src
+     * @param srcOffset
+     * @param length
+     * @param dst
+     * @param dstOffset
+     * @return 書き込んだバイト数
+     */
+    static int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        int[] table = new int[1 << HASH_LOG];// 4バイトのハッシュから直前の出現位置+1への対応
+        int srcEnd = srcOffset + length;
+        int matchLimit = srcEnd - LAST_LITERALS;
+        int mfLimit = srcEnd - MF_LIMIT;
+        int anchor = srcOffset;
+        int position = srcOffset;
+        int output = dstOffset;
+
+        while (position < mfLimit) {
+            int sequence = readInt(src, position);
+            int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+            int reference = table[hash] - 1 + srcOffset;
+            table[hash] = position - srcOffset + 1;
+            if (reference < srcOffset || position - reference > MAX_DISTANCE || readInt(src, reference) != sequence) {
+                position++;
+                continue;
+            }
+            // 一致を前後に伸ばす
+            while (position > anchor && reference > srcOffset && src[position - 1] == src[reference - 1]) {
+                position--;
+                reference--;
+            }
+            int matchLength = MIN_MATCH;
+            while (position + matchLength < matchLimit && src[position + matchLength] == src[reference + matchLength]) {
+                matchLength++;
+            }
+            output = writeSequence(dst, output, src, anchor, position - anchor, position - reference, matchLength);
+            position += matchLength;
+            anchor = position;
+        }
+        return writeSequence(dst, output, src, anchor, srcEnd - anchor, 0, 0) - dstOffset;
+    }
+
+    /**
+     * srcのsrcOffsetからlengthバイトを展開してdstの全体に書き込むメソッド
+     *
+     * @param src
+     * @param srcOffset
+     * @param length
+     * @param dst 展開後のバイト数と同じ長さの配列
+     * @throws IOException 形式が不正な場合や展開後のバイト数が一致しない場合
+     */
+    static void decompress(byte[] src, int srcOffset, int length, byte[] dst) throws IOException {
+        int position = srcOffset;
+        int srcEnd = srcOffset + length;
+        int output = 0;
+        while (true) {
+            if (position >= srcEnd) {
+                throw new IOException("Compressed data truncated");
+            }
+            int token = src[position++] & 0xFF;
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int b;
+                do {
+                    if (position >= srcEnd) {
+                        throw new IOException("Compressed data truncated");
+                    }
+                    b = src[position++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > srcEnd - position || literalLength > dst.length - output) {
+                throw new IOException("Invalid literal length: " + literalLength);
+            }
+            System.arraycopy(src, position, dst, output, literalLength);
+            position += literalLength;
+            output += literalLength;
+            if (position == srcEnd) {
+                if (output != dst.length) {
+                    throw new IOException("Decompressed length mismatch: " + output + " != " + dst.length);
+                }
+                return;
+            }
+
+            if (srcEnd - position < 2) {
+                throw new IOException("Compressed data truncated");
+            }
+            int offset = (src[position] & 0xFF) | (src[position + 1] & 0xFF) << 8;
+            position += 2;
+            if (offset == 0 || offset > output) {
+                throw new IOException("Invalid match offset: " + offset);
+            }
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (position >= srcEnd) {
+                        throw new IOException("Compressed data truncated");
+                    }
+                    b = src[position++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dst.length - output) {
+                throw new IOException("Invalid match length: " + matchLength);
+            }
+            // 一致は展開中の範囲と重なることがあるため，1バイトずつ複写する
+            for (int reference = output - offset, end = output + matchLength; output < end;) {
+                dst[output++] = dst[reference++];
+            }
+        }
+    }
+
+    /**
+     * リテラルと一致を1つのsequenceとして書き込み，書き込み後の位置を返すメソッド
+     * offsetが0の場合はリテラルのみの最後のsequenceを書き込む．
+     */
+    private static int writeSequence(byte[] dst, int output, byte[] src, int literalStart, int literalLength,
+            int offset, int matchLength) {
+        int tokenPosition = output++;
+        int token;
+        if (literalLength >= 15) {
+            token = 15 << 4;
+            output = writeLength(dst, output, literalLength - 15);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(src, literalStart, dst, output, literalLength);
+        output += literalLength;
+        if (offset != 0) {
+            dst[output++] = (byte) offset;
+            dst[output++] = (byte) (offset >>> 8);
+            int length = matchLength - MIN_MATCH;
+            if (length >= 15) {
+                token |= 15;
+                output = writeLength(dst, output, length - 15);
+            } else {
+                token |= length;
+            }
+        }
+        dst[tokenPosition] = (byte) token;
+        return output;
+    }
+
+    private static int writeLength(byte[] dst, int output, int length) {
+        while (length >= 255) {
+            dst[output++] = (byte) 255;
+            length -= 255;
+        }
+        dst[output++] = (byte) length;
+        return output;
+    }
+
+    private static int readInt(byte[] data, int position) {
+        return (data[position] & 0xFF) | (data[position + 1] & 0xFF) << 8 | (data[position + 2] & 0xFF) << 16
+                | (data[position + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,107 @@
+package gossip.codec;
+
+import gossip.node.MemberDigest;
+import gossip.state.AppStateEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.InetSocketAddress;
+
+/**
+ * ゴシップメッセージとバイト配列を相互変換するインターフェース
+ */
+public interface MessageCodec {
+    /**
+     * ゴシップメッセージをバイト配列に変換するメソッド
+     *
+     * @param message
+     * @return
+     * @throws IOException
+     */
+    byte[] encode(GossipMessage message) throws IOException;
+
+    /**
+     * バイト配列のoffsetからlengthバイトをゴシップメッセージとして読み込むメソッド
+     *
+     * @param data
+     * @param offset
+     * @param length
+     * @return
+     * @throws IOException
+     */
+    GossipMessage decode(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * バッファのpositionからlimitまでをゴシップメッセージとして読み込むメソッド
+     * バッファのpositionとlimitは変更しない．
+     * 配列を持たないダイレクトバッファは，既定ではバイト配列に複製してから読み込む．
+     *
+     * @param buffer
+     * @return
+     * @throws IOException
+     */
+    default GossipMessage decode(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * 相乗りさせるノード情報を含まないメッセージのバイト数の見積もりを返すメソッド
+     *
+     * @return
+     */
+    int estimateBaseSize();
+
+    /**
+     * ノード情報1件を追加した場合に増えるバイト数の見積もりを返すメソッド
+     *
+     * @param member
+     * @return
+     */
+    int estimateSize(MemberDigest member);
+
+    /**
+     * 指定した種類のメッセージにノード情報1件を追加した場合に増えるバイト数の見積もりを返すメソッド
+     * 種類によって載せる項目が変わらない形式では，estimateSize(member)と同じ値を返す．
+     *
+     * @param type
+     * @param member
+     * @return
+     */
+    default int estimateSize(MessageType type, MemberDigest member) {
+        return estimateSize(member);
+    }
+
+    /**
+     * 指定した種類のメッセージで，previousの直後にノード情報1件を追加した場合に増えるバイト数の見積もりを返すメソッド
+     * 直前のノード情報との差分で送る形式では，estimateSize(type, member)より小さい値を返す．
+     *
+     * @param type
+     * @param previous 先頭に追加する場合はnull
+     * @param member
+     * @return
+     */
+    default int estimateSize(MessageType type, MemberDigest previous, MemberDigest member) {
+        return estimateSize(type, member);
+    }
+
+    /**
+     * アプリケーションの状態の差分を1つのノードについて追加した場合に増える，キー以外のバイト数の見積もりを返すメソッド
+     *
+     * @param owner
+     * @return
+     */
+    int estimateAppStateSize(InetSocketAddress owner);
+
+    /**
+     * アプリケーションの状態のキー1件を追加した場合に増えるバイト数の見積もりを返すメソッド
+     *
+     * @param entry
+     * @return
+     */
+    int estimateSize(AppStateEntry entry);
+}
@@ -0,0 +1,53 @@
+package gossip.codec;
+
+/**
+ * ゴシップメッセージの種類
+ */
+public enum MessageType {
+    GOSSIP(1), // 定期的なハートビートとノード情報の送信
+    PING(2), // 直接の死活確認
+    PING_REQ(3), // 他のノードに代理で死活確認を依頼する
+    ACK(4), // PINGに対する応答
+    SYNC(5), // プッシュプル方式で保持しているノードのシーケンス番号を送る
+    SYNC_REPLY(6), // SYNCに対する応答．送信元より新しいノード情報のみを返す
+    COMPOUND(7);// 同じ宛先への複数のメッセージをまとめたパケット．CompoundFrameで分割する
+
+    private final byte code;// メッセージ上の番号
+
+    MessageType(int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * メッセージ上の番号のゲッター
+     *
+     * @return
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * 死活確認のメッセージかどうかを返すメソッド
+     *
+     * @return
+     */
+    public boolean isProbe() {
+        return this == PING || this == PING_REQ || this == ACK;
+    }
+
+    /**
+     * メッセージ上の番号から種類を取得するメソッド
+     *
+     * @param code
+     * @return
+     */
+    public static MessageType fromCode(int code) {
+        for (MessageType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown message type: " + code);
+    }
+}
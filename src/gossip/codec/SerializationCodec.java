@@ -0,0 +1,70 @@
+package gossip.codec;
+
+import gossip.node.MemberDigest;
+import gossip.node.Node;
+import gossip.state.AppStateEntry;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+
+/**
+ * Javaの標準シリアライズを用いる旧来のメッセージ形式
+ * 旧バージョンのノードと通信する場合に使用する．
+ */
+public class SerializationCodec implements MessageCodec {
+    // クラス記述子を含むため，バイナリ形式よりも大きめに見積もる
+    private static final int BASE_SIZE_ESTIMATE = 768;
+    private static final int MEMBER_SIZE_ESTIMATE = 96;
+    private static final int APP_STATE_SIZE_ESTIMATE = 384;// 差分とキーのクラス記述子を含む
+    private static final int ENTRY_SIZE_ESTIMATE = 64;
+
+    @Override
+    public byte[] encode(GossipMessage message) throws IOException {
+        ByteArrayOutputStream bStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream oo = new ObjectOutputStream(bStream)) {
+            oo.writeObject(message);
+        }
+        return bStream.toByteArray();
+    }
+
+    @Override
+    public GossipMessage decode(byte[] data, int offset, int length) throws IOException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(
+                new ByteArrayInputStream(data, offset, length))) {
+            Object message = objectInputStream.readObject();
+            // 旧バージョンのノードはNodeオブジェクトのみを送信する
+            if (message instanceof Node) {
+                return new GossipMessage((Node) message);
+            }
+            return (GossipMessage) message;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unknown message class", e);
+        }
+    }
+
+    @Override
+    public int estimateBaseSize() {
+        return BASE_SIZE_ESTIMATE;
+    }
+
+    @Override
+    public int estimateSize(MemberDigest member) {
+        return MEMBER_SIZE_ESTIMATE;
+    }
+
+    @Override
+    public int estimateAppStateSize(InetSocketAddress owner) {
+        return APP_STATE_SIZE_ESTIMATE;
+    }
+
+    @Override
+    public int estimateSize(AppStateEntry entry) {
+        // 文字列は1文字あたり最大3バイトの修正UTF-8で書き込まれる
+        int length = entry.getKey().length() + (entry.isDeleted() ? 0 : entry.getValue().length());
+        return ENTRY_SIZE_ESTIMATE + 3 * length;
+    }
+}
@@ -0,0 +1,39 @@
+package gossip.codec;
+
+import gossip.transport.Transport;
+
+/**
+ * 送受信に使用するメッセージ形式
+ */
+public enum WireFormat {
+    BINARY, // 独自バイナリ形式
+    SERIALIZATION;// Javaシリアライズ形式（旧来の形式）
+
+    /**
+     * 形式に対応するコーデックを生成するメソッド
+     *
+     * @return
+     */
+    public MessageCodec createCodec() {
+        return createCodec(false, 0, Transport.MAX_DATAGRAM_SIZE);
+    }
+
+    /**
+     * 送信するメッセージの縮小方法を指定してコーデックを生成するメソッド
+     * SERIALIZATIONでは指定を無視する．
+     *
+     * @param compact              ノード情報のアドレスを直前のノードとの差分で送るか
+     * @param compressionThreshold この大きさ以上のメッセージを圧縮する．0の場合は圧縮しない
+     * @param maxMessageSize       圧縮されたメッセージの展開後の最大バイト数
+     * @return
+     */
+    public MessageCodec createCodec(boolean compact, int compressionThreshold, int maxMessageSize) {
+        switch (this) {
+            case SERIALIZATION:
+                return new SerializationCodec();
+            case BINARY:
+            default:
+                return new BinaryCodec(compact, compressionThreshold, maxMessageSize);
+        }
+    }
+}
@@ -1,5 +1,12 @@
 package gossip.config;
 
+import gossip.codec.WireFormat;
+import gossip.detector.FailureDetectorMode;
+import gossip.executor.ExecutionMode;
+import gossip.sampler.PeerSelectionMode;
+import gossip.service.ExchangeMode;
+import gossip.transport.TransportMode;
+
 import java.time.Duration;
 import java.io.Serializable;
 
@@ -11,7 +18,42 @@ public class GossipConfig implements Serializable {
     public final Duration cleanupTimeout;// 故障した情報の削除タイムアウト
     public final Duration updateFrequency;// 情報更新周期
     public final Duration failureDetectionFrequency;// 故障検知周期
-    public final int peersToUpdatePerInterval;// 情報を送信する相手の数
+    public final int peersToUpdatePerInterval;// 情報を送信する相手の数．adaptiveGossipでは変化のない間の送信量の基準
+    public WireFormat wireFormat = WireFormat.BINARY;// 送受信するメッセージの形式
+    public int maxDatagramSize = 1024;// 送信する1つのUDPパケットの最大バイト数．65507まで指定できる
+    public boolean compactEncoding = false;// ノード情報のアドレスを直前のノードとの差分で送るか．全ノードが対応している必要がある
+    public int compressionThreshold = 0;// この大きさ以上のメッセージをLZ4形式で圧縮する．0の場合は圧縮しない．全ノードが対応し，同じmaxDatagramSizeを指定する必要がある
+    public ExecutionMode executionMode = ExecutionMode.SHARED_SCHEDULER;// 処理を実行するスレッドの方式
+    public TransportMode transportMode = TransportMode.NIO_EVENT_LOOP;// ノード間の通信方式
+    public boolean logging = true;// CSVファイルと標準出力にログを出力するか
+    public FailureDetectorMode failureDetectorMode = FailureDetectorMode.FIXED_TIMEOUT;// 故障の判定方式
+    public double phiThreshold = 8.0;// PHI_ACCRUALで故障とみなすphiの閾値
+    public int phiWindowSize = 100;// PHI_ACCRUALで保持するハートビートの到着間隔の数
+    public Duration phiMinStdDeviation = Duration.ofMillis(200);// PHI_ACCRUALでの標準偏差の下限
+    public Duration phiAcceptablePause = Duration.ofMillis(1000);// PHI_ACCRUALで許容する停止時間
+    public boolean probing = false;// SWIM方式の直接・間接の死活確認を行うか
+    public Duration probeInterval = Duration.ofMillis(1000);// 死活確認の周期
+    public Duration probeTimeout = Duration.ofMillis(200);// 直接の死活確認の応答待ち時間
+    public int indirectProbes = 3;// 間接の死活確認を依頼する相手の数
+    public Duration suspicionTimeout = Duration.ofMillis(3000);// 疑いを受けてから故障とみなすまでの時間
+    public boolean jmx = false;// メトリクスをJMXで公開するか
+    public PeerSelectionMode peerSelectionMode = PeerSelectionMode.RANDOM;// ゴシップを送信する相手の選び方
+    public boolean batching = false;// 宛先ごとに送信をまとめ，batchIntervalごとに送信するか
+    public Duration batchInterval = Duration.ofMillis(20);// まとめた送信を行う周期．送信の遅れの上限になる
+    public int eventQueueCapacity = 4096;// 配送待ちのメンバーシップイベントの最大数．超えたイベントは破棄する
+    public boolean coalesceEvents = false;// 連続したメンバーシップイベントをまとめてリスナーに渡すか
+    public ExchangeMode exchangeMode = ExchangeMode.PUSH;// ゴシップの交換方式．PUSH_PULLは全ノードが対応し，同じmaxDatagramSizeを指定する必要がある
+    public String checkpointDirectory = null;// メンバーシップを保存し，再起動時に復元するディレクトリ．nullの場合は保存しない
+    public Duration checkpointInterval = Duration.ofSeconds(1);// メンバーシップを保存する周期
+    public boolean joinSync = false;// TCPで全ノードの情報を提供し，参加時にターゲットノードから取得するか．全ノードで有効にする
+    public Duration joinSyncTimeout = Duration.ofSeconds(5);// 全ノードの情報の取得での接続と読み書きのタイムアウト
+    public boolean adaptiveGossip = false;// 送信相手の数と送信周期をノード数とメンバーシップの変化に応じて調整するか
+    public int minFanout = 1;// adaptiveGossipでの送信相手の数の下限
+    public int maxFanout = 10;// adaptiveGossipでの送信相手の数の上限
+    public Duration minUpdateInterval = Duration.ofMillis(100);// adaptiveGossipで変化を伝えている間の送信周期
+    public Duration maxUpdateInterval = Duration.ofMillis(2000);// adaptiveGossipで変化のない間の送信周期の上限．failureTimeoutより十分短くする
+    public String zone = null;// 自身のゾーンやラックの名前．指定した場合は同じゾーンのノードを優先して送信相手に選ぶ
+    public double crossZoneProbability = 0.1;// zoneを指定した場合に，1周期の送信相手の1つを他のゾーンから選ぶ確率
 
     public GossipConfig(Duration failureTimeout, Duration cleanupTimeout,
             Duration updateFrequency, Duration failureDetectionFrequency,
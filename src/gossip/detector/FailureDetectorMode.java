@@ -0,0 +1,9 @@
+package gossip.detector;
+
+/**
+ * ノードの故障を判定する方式
+ */
+public enum FailureDetectorMode {
+    FIXED_TIMEOUT, // 最後の更新からfailureTimeoutが経過したら故障とみなす
+    PHI_ACCRUAL;// ハートビートの到着間隔の分布からphiを求め，閾値を超えたら故障とみなす
+}
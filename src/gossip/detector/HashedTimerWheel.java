@@ -0,0 +1,129 @@
+package gossip.detector;
+
+import java.util.ArrayList;
+
+/**
+ * 期限付きの要素を管理するハッシュ化タイマーホイール
+ * 要素は期限に対応するスロットに格納され，expire()では経過したスロットの要素のみを調べる．
+ * 期限の更新は要素を移動せず，期限が到来した時点でハンドラが次の期限を返すことで再登録する．
+ *
+ * @param <T>
+ */
+public class HashedTimerWheel<T> {
+    public static final long NO_DEADLINE = -1;// 再登録しないことを表す値
+
+    /**
+     * 期限が到来した要素を処理するインターフェース
+     *
+     * @param <T>
+     */
+    public interface ExpiryHandler<T> {
+        /**
+         * 期限が到来した要素を処理するメソッド
+         *
+         * @param item
+         * @param deadline 登録されていた期限
+         * @return 次の期限．再登録しない場合はNO_DEADLINE
+         */
+        long onExpired(T item, long deadline);
+    }
+
+    private final long tickMillis;// 1スロットが表す時間
+    private final ArrayList<Entry<T>>[] wheel;
+    private final int mask;
+    private long lastTick;// 最後に処理したスロットの番号
+    private int size = 0;
+
+    /**
+     * @param tickMillis 1スロットが表す時間
+     * @param span       1周で表す時間の目安
+     * @param startMillis 開始時刻
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public HashedTimerWheel(long tickMillis, long span, long startMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        int slots = Integer.highestOneBit((int) Math.min(1 << 20, span / this.tickMillis + 1) * 2 - 1);
+        slots = Math.max(64, slots);
+        this.wheel = new ArrayList[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.mask = slots - 1;
+        this.lastTick = startMillis / this.tickMillis;
+    }
+
+    /**
+     * 要素を期限付きで登録するメソッド
+     *
+     * @param item
+     * @param deadline
+     */
+    public synchronized void schedule(T item, long deadline) {
+        add(new Entry<>(item, deadline));
+    }
+
+    /**
+     * 現在時刻までに期限が到来した要素をハンドラで処理するメソッド
+     * ハンドラが次の期限を返した要素は再登録される．
+     *
+     * @param now
+     * @param handler
+     * @return 処理した要素の数
+     */
+    public synchronized int expire(long now, ExpiryHandler<T> handler) {
+        long currentTick = now / tickMillis;
+        ArrayList<Entry<T>> expired = new ArrayList<>();
+        // 1周以上経過した場合でも，各スロットは1度だけ調べればよい
+        long firstTick = Math.max(lastTick + 1, currentTick - mask);
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            ArrayList<Entry<T>> bucket = wheel[(int) (tick & mask)];
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                Entry<T> entry = bucket.get(i);
+                if (entry.deadline <= now) {
+                    // 末尾の要素と入れ替えて削除する
+                    int last = bucket.size() - 1;
+                    bucket.set(i, bucket.get(last));
+                    bucket.remove(last);
+                    expired.add(entry);
+                }
+            }
+        }
+        lastTick = Math.max(lastTick, currentTick);
+        size -= expired.size();
+
+        for (Entry<T> entry : expired) {
+            long next = handler.onExpired(entry.item, entry.deadline);
+            if (next != NO_DEADLINE) {
+                entry.deadline = next;
+                add(entry);
+            }
+        }
+        return expired.size();
+    }
+
+    /**
+     * 登録されている要素の数を返すメソッド
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void add(Entry<T> entry) {
+        // 期限以降に開始するスロットに格納し，期限を過ぎている要素は次に処理するスロットに格納する
+        long tick = Math.max((entry.deadline + tickMillis - 1) / tickMillis, lastTick + 1);
+        wheel[(int) (tick & mask)].add(entry);
+        size++;
+    }
+
+    private static class Entry<T> {
+        final T item;
+        long deadline;
+
+        Entry(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package gossip.detector;
+
+/**
+ * Phi Accrual故障検知を行うクラス
+ * ハートビートの到着間隔を固定長のリングバッファに保持し，その平均と標準偏差から
+ * 最後の到着からの経過時間が故障を示す度合い（phi）を求める．
+ * phiが閾値を超えると故障とみなす．
+ */
+public class PhiAccrualDetector {
+    private final double threshold;// 故障とみなすphiの閾値
+    private final long minStdDeviationMillis;// 標準偏差の下限
+    private final long acceptablePauseMillis;// 平均に加算する許容停止時間
+    private final long[] intervals;// 到着間隔のリングバッファ
+    private int index = 0;// 次に書き込む位置
+    private int count = 0;// 保持している到着間隔の数
+    private long intervalSum = 0;
+    private long intervalSquaredSum = 0;
+    private long lastHeartbeatMillis;// 最後にハートビートが到着した時刻
+
+    /**
+     * @param threshold             故障とみなすphiの閾値
+     * @param windowSize            保持する到着間隔の数
+     * @param minStdDeviationMillis 標準偏差の下限
+     * @param acceptablePauseMillis 平均に加算する許容停止時間
+     * @param firstIntervalMillis   到着間隔が得られるまで使用する推定値
+     * @param nowMillis             現在時刻
+     */
+    public PhiAccrualDetector(double threshold, int windowSize, long minStdDeviationMillis,
+            long acceptablePauseMillis, long firstIntervalMillis, long nowMillis) {
+        this.threshold = threshold;
+        this.minStdDeviationMillis = minStdDeviationMillis;
+        this.acceptablePauseMillis = acceptablePauseMillis;
+        this.intervals = new long[Math.max(2, windowSize)];
+        this.lastHeartbeatMillis = nowMillis;
+        // 推定値の前後にばらつかせた2つの到着間隔で初期化する
+        long deviation = firstIntervalMillis / 4;
+        addInterval(firstIntervalMillis - deviation);
+        addInterval(firstIntervalMillis + deviation);
+    }
+
+    /**
+     * ハートビートの到着を記録するメソッド
+     *
+     * @param nowMillis
+     */
+    public synchronized void heartbeat(long nowMillis) {
+        long interval = nowMillis - lastHeartbeatMillis;
+        if (interval > 0) {
+            addInterval(interval);
+        }
+        lastHeartbeatMillis = nowMillis;
+    }
+
+    /**
+     * 現在時刻におけるphiを返すメソッド
+     *
+     * @param nowMillis
+     * @return
+     */
+    public synchronized double phi(long nowMillis) {
+        return phi(nowMillis - lastHeartbeatMillis, mean(), stdDeviation());
+    }
+
+    /**
+     * 新たなハートビートが届かなかった場合に，phiが閾値を超える時刻を返すメソッド
+     * phiは経過時間に対して単調増加するため，二分探索で求める．
+     *
+     * @return
+     */
+    public synchronized long getFailureDeadline() {
+        double mean = mean();
+        double stdDeviation = stdDeviation();
+        long low = 0;
+        long high = (long) (mean + stdDeviation * 64) + 1;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (phi(middle, mean, stdDeviation) > threshold) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return lastHeartbeatMillis + low;
+    }
+
+    private void addInterval(long interval) {
+        if (count == intervals.length) {
+            long oldest = intervals[index];
+            intervalSum -= oldest;
+            intervalSquaredSum -= oldest * oldest;
+        } else {
+            count++;
+        }
+        intervals[index] = interval;
+        intervalSum += interval;
+        intervalSquaredSum += interval * interval;
+        index = (index + 1) % intervals.length;
+    }
+
+    private double mean() {
+        return (double) intervalSum / count + acceptablePauseMillis;
+    }
+
+    private double stdDeviation() {
+        double mean = (double) intervalSum / count;
+        double variance = (double) intervalSquaredSum / count - mean * mean;
+        return Math.max(Math.sqrt(Math.max(0, variance)), minStdDeviationMillis);
+    }
+
+    /**
+     * 正規分布の累積分布関数をロジスティック関数で近似してphiを求めるメソッド
+     *
+     * @param elapsedMillis
+     * @param mean
+     * @param stdDeviation
+     * @return
+     */
+    private static double phi(long elapsedMillis, double mean, double stdDeviation) {
+        double y = (elapsedMillis - mean) / stdDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsedMillis > mean) {
+            return -Math.log10(e / (1.0 + e));
+        } else {
+            return -Math.log10(1.0 - 1.0 / (1.0 + e));
+        }
+    }
+}
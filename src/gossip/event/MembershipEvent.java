@@ -0,0 +1,82 @@
+package gossip.event;
+
+import java.net.InetSocketAddress;
+
+/**
+ * メンバーシップの変化を表すイベント
+ */
+public class MembershipEvent {
+    private final MembershipEventType type;// 変化の種類
+    private final InetSocketAddress address;// 変化したノードのアドレス
+    private final long sequenceNumber;// 変化した時点のシーケンス番号．UPDATEDではキーの版番号
+    private final String key;// UPDATEDで変化したキー．それ以外ではnull
+    private final String value;// UPDATEDでの変化後の値．キーが削除された場合やUPDATED以外ではnull
+
+    public MembershipEvent(MembershipEventType type, InetSocketAddress address, long sequenceNumber) {
+        this(type, address, sequenceNumber, null, null);
+    }
+
+    public MembershipEvent(MembershipEventType type, InetSocketAddress address, long sequenceNumber,
+            String key, String value) {
+        this.type = type;
+        this.address = address;
+        this.sequenceNumber = sequenceNumber;
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * 変化の種類のゲッター
+     *
+     * @return
+     */
+    public MembershipEventType getType() {
+        return type;
+    }
+
+    /**
+     * 変化したノードのアドレスのゲッター
+     *
+     * @return
+     */
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * 変化した時点のシーケンス番号のゲッター
+     * UPDATEDではキーの版番号を返す．
+     *
+     * @return
+     */
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * UPDATEDで変化したキーのゲッター
+     *
+     * @return UPDATED以外ではnull
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * UPDATEDでの変化後の値のゲッター
+     *
+     * @return キーが削除された場合やUPDATED以外ではnull
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        String node = type + " " + address.getAddress().getHostAddress() + ":" + address.getPort();
+        if (type == MembershipEventType.UPDATED) {
+            return node + " " + key + "=" + value + " (version " + sequenceNumber + ")";
+        }
+        return node + " (sequence " + sequenceNumber + ")";
+    }
+}
@@ -0,0 +1,115 @@
+package gossip.event;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * メンバーシップの変化を複数のリスナーに非同期に配送するクラス
+ * publish()はイベントを上限付きのキューに追加するのみで，呼び出し元のスレッドをブロックしない．
+ * キューが満杯の場合はイベントを破棄する．
+ * 配送はGossipExecutorとは別の専用のExecutor上で1つずつ順に行うため，各リスナーには発生順に届き，
+ * 遅いリスナーがゴシップの処理を止めることはない．
+ */
+public class MembershipEventBus {
+    private static final int MAX_BATCH_SIZE = 256;// coalesceEventsでまとめるイベントの最大数
+
+    private final Executor dispatcher;// リスナーを呼び出す専用のExecutor
+    private final boolean coalesce;// 連続したイベントをまとめて配送するか
+    private final ArrayBlockingQueue<MembershipEvent> queue;
+    private final List<MembershipListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean();// 配送処理を実行中または実行待ちか
+    private final LongAdder droppedEvents;// キューが満杯で破棄したイベントの数
+
+    /**
+     * @param dispatcher    リスナーを呼び出す専用のExecutor．ゴシップの処理と共有してはならない
+     * @param capacity      配送待ちのイベントの最大数
+     * @param coalesce
+     * @param droppedEvents
+     */
+    public MembershipEventBus(Executor dispatcher, int capacity, boolean coalesce, LongAdder droppedEvents) {
+        this.dispatcher = dispatcher;
+        this.coalesce = coalesce;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.droppedEvents = droppedEvents;
+    }
+
+    /**
+     * リスナーを登録するメソッド
+     * 登録後に発生したイベントから受け取る．
+     *
+     * @param listener
+     */
+    public void subscribe(MembershipListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * リスナーの登録を解除するメソッド
+     *
+     * @param listener
+     */
+    public void unsubscribe(MembershipListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * イベントを配送待ちに追加するメソッド
+     *
+     * @param event
+     */
+    public void publish(MembershipEvent event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (!queue.offer(event)) {
+            droppedEvents.increment();
+            return;
+        }
+        scheduleDispatch();
+    }
+
+    private void scheduleDispatch() {
+        if (dispatching.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatch);
+        }
+    }
+
+    /**
+     * 配送待ちのイベントがなくなるまで配送するメソッド
+     */
+    private void dispatch() {
+        List<MembershipEvent> batch = new ArrayList<>();
+        List<MembershipEvent> view = Collections.unmodifiableList(batch);
+        while (true) {
+            queue.drainTo(batch, coalesce ? MAX_BATCH_SIZE : 1);
+            if (batch.isEmpty()) {
+                dispatching.set(false);
+                // 終了を記録する直前に追加されたイベントがあれば，配送をやり直す
+                if (queue.isEmpty() || !dispatching.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            for (MembershipListener listener : listeners) {
+                try {
+                    if (coalesce) {
+                        listener.onEvents(view);
+                    } else {
+                        listener.onEvent(batch.get(0));
+                    }
+                } catch (RuntimeException e) {
+                    // 1つのリスナーの失敗で他のリスナーへの配送を止めない
+                    System.out.println("Membership listener failed: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package gossip.event;
+
+/**
+ * メンバーシップの変化の種類
+ */
+public enum MembershipEventType {
+    JOINED, // 新しいノードを保持した
+    SUSPECTED, // ノードの故障が疑われた
+    FAILED, // ノードが故障したと判定した
+    REVIVED, // 故障と判定したノードから新しいハートビートを受信した
+    REMOVED, // 故障したノードの情報を削除した
+    UPDATED;// ノードが公開するアプリケーションの状態のキーが変化した
+}
@@ -0,0 +1,28 @@
+package gossip.event;
+
+import java.util.List;
+
+/**
+ * メンバーシップの変化を受け取るインターフェース
+ * 受信処理や故障検知とは別のスレッドから，発生した順に呼び出される．
+ */
+public interface MembershipListener {
+    /**
+     * イベントを1件受け取るメソッド
+     *
+     * @param event
+     */
+    void onEvent(MembershipEvent event);
+
+    /**
+     * coalesceEventsが有効な場合に，連続して発生したイベントをまとめて受け取るメソッド
+     * 既定では1件ずつonEvent()を呼び出す．
+     *
+     * @param events 発生順のイベント．呼び出し後に再利用されるため保持しないこと
+     */
+    default void onEvents(List<MembershipEvent> events) {
+        for (MembershipEvent event : events) {
+            onEvent(event);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package gossip.executor;
+
+/**
+ * ゴシッププロトコルの処理を実行するスレッドの方式
+ */
+public enum ExecutionMode {
+    SHARED_SCHEDULER, // プロセス全体で共有するスレッドプールを使用する
+    VIRTUAL_THREADS;// 仮想スレッドを使用する（Java 21以降）
+
+    /**
+     * 方式に対応する共有のGossipExecutorを返すメソッド
+     *
+     * @return
+     */
+    public GossipExecutor getExecutor() {
+        switch (this) {
+            case VIRTUAL_THREADS:
+                return VirtualThreadGossipExecutor.getInstance();
+            case SHARED_SCHEDULER:
+            default:
+                return SharedGossipExecutor.getInstance();
+        }
+    }
+}
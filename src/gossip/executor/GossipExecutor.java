@@ -0,0 +1,45 @@
+package gossip.executor;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+
+/**
+ * ゴシッププロトコルの各処理を実行するスレッドを管理するインターフェース
+ * 複数のGossipServiceで共有し，ノードごとにスレッドを生成しないようにする．
+ */
+public interface GossipExecutor {
+    /**
+     * 処理を一定の間隔で繰り返し実行するメソッド
+     * 前回の実行が終わってからinterval経過後に次の実行を開始する．
+     *
+     * @param task
+     * @param interval
+     * @return 停止する際にキャンセルするFuture
+     */
+    Future<?> scheduleWithFixedDelay(Runnable task, Duration interval);
+
+    /**
+     * 処理をdelay経過後に1度だけ実行するメソッド
+     *
+     * @param task
+     * @param delay
+     * @return 実行前に取り消す際にキャンセルするFuture
+     */
+    Future<?> schedule(Runnable task, Duration delay);
+
+    /**
+     * 処理を1度だけ非同期に実行するメソッド
+     *
+     * @param task
+     */
+    void execute(Runnable task);
+
+    /**
+     * ソケットの受信待ちのようにブロックする処理を繰り返し実行するメソッド
+     *
+     * @param name
+     * @param loop
+     * @return 停止する際にキャンセルするFuture
+     */
+    Future<?> startBlockingLoop(String name, Runnable loop);
+}
@@ -0,0 +1,95 @@
+package gossip.executor;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * プロセス全体で1つのスケジューラを共有するGossipExecutor
+ * 周期処理と送信処理はCPUコア数のスレッドで実行し，
+ * ブロックする受信処理のみ専用のスレッドで実行する．
+ */
+public class SharedGossipExecutor implements GossipExecutor {
+    private static final SharedGossipExecutor INSTANCE = new SharedGossipExecutor(
+            Runtime.getRuntime().availableProcessors());
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public SharedGossipExecutor(int poolSize) {
+        scheduler = new ScheduledThreadPoolExecutor(poolSize, daemonThreadFactory("gossip-scheduler-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * プロセス全体で共有するインスタンスを返すメソッド
+     *
+     * @return
+     */
+    public static SharedGossipExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Future<?> scheduleWithFixedDelay(Runnable task, Duration interval) {
+        long intervalMillis = interval.toMillis();
+        return scheduler.scheduleWithFixedDelay(logErrors(task), 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Future<?> schedule(Runnable task, Duration delay) {
+        return scheduler.schedule(logErrors(task), delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        scheduler.execute(logErrors(task));
+    }
+
+    @Override
+    public Future<?> startBlockingLoop(String name, Runnable loop) {
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                loop.run();
+            }
+        }, null);
+        Thread thread = new Thread(future, name);
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    /**
+     * 例外が発生しても周期処理が停止しないように，例外を出力して握りつぶすメソッド
+     *
+     * @param task
+     * @return
+     */
+    static Runnable logErrors(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        };
+    }
+
+    /**
+     * デーモンスレッドを生成するThreadFactoryを作成するメソッド
+     *
+     * @param prefix
+     * @return
+     */
+    static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
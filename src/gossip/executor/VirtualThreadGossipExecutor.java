@@ -0,0 +1,119 @@
+package gossip.executor;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 仮想スレッドで処理を実行するGossipExecutor
+ * 周期処理のタイミングは1つのスケジューラスレッドで管理し，処理本体は仮想スレッドで実行する．
+ * 受信処理も仮想スレッドで待機するため，多数のGossipServiceを少数のキャリアスレッドで動かせる．
+ * 仮想スレッドを利用できないJava 21未満の環境ではSharedGossipExecutorに切り替える．
+ */
+public class VirtualThreadGossipExecutor implements GossipExecutor {
+    private static volatile GossipExecutor instance;
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService virtualThreads;
+
+    private VirtualThreadGossipExecutor(ExecutorService virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                SharedGossipExecutor.daemonThreadFactory("gossip-virtual-timer-"));
+    }
+
+    /**
+     * プロセス全体で共有するインスタンスを返すメソッド
+     *
+     * @return
+     */
+    public static GossipExecutor getInstance() {
+        GossipExecutor executor = instance;
+        if (executor == null) {
+            synchronized (VirtualThreadGossipExecutor.class) {
+                executor = instance;
+                if (executor == null) {
+                    executor = create();
+                    instance = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static GossipExecutor create() {
+        try {
+            // Java 21未満でもコンパイルできるようにリフレクションで取得する
+            ExecutorService virtualThreads = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new VirtualThreadGossipExecutor(virtualThreads);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads are not available, using shared scheduler instead");
+            return SharedGossipExecutor.getInstance();
+        }
+    }
+
+    @Override
+    public Future<?> scheduleWithFixedDelay(Runnable task, Duration interval) {
+        return new PeriodicTask(SharedGossipExecutor.logErrors(task), interval.toMillis()).start();
+    }
+
+    @Override
+    public Future<?> schedule(Runnable task, Duration delay) {
+        // スケジューラスレッドは時刻の管理のみを行い，処理本体は仮想スレッドで実行する
+        // タイマーの発火後も取り消せるように，仮想スレッドで実行する処理自体のFutureを返す
+        FutureTask<Void> future = new FutureTask<>(SharedGossipExecutor.logErrors(task), null);
+        timer.schedule(() -> virtualThreads.execute(future), delay.toNanos(), TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        virtualThreads.execute(SharedGossipExecutor.logErrors(task));
+    }
+
+    @Override
+    public Future<?> startBlockingLoop(String name, Runnable loop) {
+        return virtualThreads.submit(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                loop.run();
+            }
+        });
+    }
+
+    /**
+     * 処理の終了後に次の実行を予約する周期処理
+     * 処理本体は仮想スレッドで実行し，スケジューラスレッドは予約のみを行う．
+     */
+    private class PeriodicTask implements Runnable {
+        private final Runnable task;
+        private final long intervalMillis;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PeriodicTask(Runnable task, long intervalMillis) {
+            this.task = task;
+            this.intervalMillis = intervalMillis;
+        }
+
+        Future<?> start() {
+            virtualThreads.execute(this);
+            return future;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            task.run();
+            if (!future.isDone()) {
+                timer.schedule(() -> virtualThreads.execute(this), intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
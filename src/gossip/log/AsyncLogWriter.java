@@ -0,0 +1,255 @@
+package gossip.log;
+
+import java.io.File;
+import java.io.Writer;
+import java.util.Map;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.BufferedWriter;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ログファイルへの書き込みを非同期にまとめて行うクラス
+ * 呼び出し側は行をキューに追加するだけで，1つの書き込みスレッドが
+ * ファイルを開いたまま複数行をまとめて書き込み，定期的にフラッシュする．
+ */
+public class AsyncLogWriter {
+    private static final int DEFAULT_CAPACITY = 65536;// キューに保持できる最大行数
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;// フラッシュ周期
+    private static final int BUFFER_SIZE = 64 * 1024;// ファイルごとの書き込みバッファ
+    private static final int MAX_OPEN_FILES = 256;// 同時に開いておくファイル数の上限
+
+    private static volatile AsyncLogWriter defaultWriter;
+
+    /**
+     * キューが満杯の場合の動作
+     */
+    public enum OverflowPolicy {
+        DROP, // 追加しようとした行を破棄する
+        BLOCK;// 空きができるまで呼び出し側を待たせる
+    }
+
+    private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();// キューに入っている行数
+    private final AtomicLong dropped = new AtomicLong();// 破棄した行数
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long flushIntervalNanos;
+    private final Thread writerThread;
+    private volatile boolean waiting = false;// 書き込みスレッドが待機中かどうか
+    private volatile boolean closed = false;
+
+    // 書き込みスレッドのみが操作する，開いているファイルの一覧
+    private final Map<String, Writer> writers = new LinkedHashMap<String, Writer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Writer> eldest) {
+            if (size() > MAX_OPEN_FILES) {
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public AsyncLogWriter(int capacity, OverflowPolicy policy, long flushIntervalMillis) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.writerThread = new Thread(this::run, "gossip-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * JVM全体で共有するインスタンスを返すメソッド
+     * 初回呼び出し時に生成し，JVM終了時に残りの行を書き出す．
+     *
+     * @return
+     */
+    public static AsyncLogWriter getDefault() {
+        AsyncLogWriter writer = defaultWriter;
+        if (writer == null) {
+            synchronized (AsyncLogWriter.class) {
+                writer = defaultWriter;
+                if (writer == null) {
+                    writer = new AsyncLogWriter(DEFAULT_CAPACITY, OverflowPolicy.DROP,
+                            DEFAULT_FLUSH_INTERVAL_MILLIS);
+                    Runtime.getRuntime().addShutdownHook(new Thread(writer::close));
+                    defaultWriter = writer;
+                }
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * ファイルに1行追記するメソッド
+     * キューが満杯の場合はOverflowPolicyに従う．
+     *
+     * @param file
+     * @param line
+     * @return 行をキューに追加できた場合はtrue
+     */
+    public boolean append(String file, String line) {
+        return enqueue(new Record(file, line, false));
+    }
+
+    /**
+     * ファイルの内容を空にするメソッド
+     * それ以前に追加された行の書き込み後に実行される．
+     *
+     * @param file
+     */
+    public void reset(String file) {
+        // 内容の消去は破棄せず必ず実行する
+        size.incrementAndGet();
+        offer(new Record(file, null, true));
+    }
+
+    /**
+     * 破棄した行数を返すメソッド
+     *
+     * @return
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 残りの行を書き出し，書き込みスレッドを停止するメソッド
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) * 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean enqueue(Record record) {
+        while (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            if (policy == OverflowPolicy.DROP || closed) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            // 書き込みスレッドが空きを作るまで待つ
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        offer(record);
+        return true;
+    }
+
+    private void offer(Record record) {
+        queue.offer(record);
+        if (waiting) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * 書き込みスレッドの処理
+     * キューの行をまとめて書き込み，キューが空になればフラッシュして待機する．
+     */
+    private void run() {
+        long lastFlush = System.nanoTime();
+        while (true) {
+            Record record;
+            while ((record = queue.poll()) != null) {
+                size.decrementAndGet();
+                write(record);
+                if (System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                    flushAll();
+                    lastFlush = System.nanoTime();
+                }
+            }
+            flushAll();
+            lastFlush = System.nanoTime();
+            if (closed && queue.isEmpty()) {
+                break;
+            }
+
+            waiting = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            waiting = false;
+        }
+        for (Writer writer : writers.values()) {
+            closeQuietly(writer);
+        }
+        writers.clear();
+    }
+
+    private void write(Record record) {
+        try {
+            if (record.reset) {
+                closeQuietly(writers.remove(record.file));
+                writers.put(record.file, open(record.file, false));
+                return;
+            }
+            Writer writer = writers.get(record.file);
+            if (writer == null) {
+                writer = open(record.file, true);
+                writers.put(record.file, writer);
+            }
+            writer.write(record.line);
+            writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            System.err.println("エラーが発生しました: " + e.getMessage());
+        }
+    }
+
+    private void flushAll() {
+        for (Writer writer : writers.values()) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("エラーが発生しました: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Writer open(String filePath, boolean append) throws IOException {
+        File parentDir = new File(filePath).getParentFile();
+        // ディレクトリが存在しない場合，新たにディレクトリを作成する．
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        return new BufferedWriter(new FileWriter(filePath, append), BUFFER_SIZE);
+    }
+
+    private static void closeQuietly(Writer writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("エラーが発生しました: " + e.getMessage());
+        }
+    }
+
+    /**
+     * キューに追加される1行分のレコード
+     */
+    private static class Record {
+        final String file;
+        final String line;
+        final boolean reset;// ファイルの内容を空にするかどうか
+
+        Record(String file, String line, boolean reset) {
+            this.file = file;
+            this.line = line;
+            this.reset = reset;
+        }
+    }
+}
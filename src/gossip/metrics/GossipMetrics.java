@@ -0,0 +1,80 @@
+package gossip.metrics;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.function.LongSupplier;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GossipServiceとSocketServiceの動作を計測するメトリクスの登録簿
+ * カウンタはスレッドごとに分散して加算するLongAdderを使用するため，
+ * 受信処理などの頻繁に呼ばれる処理から計測しても競合しない．
+ * ゲージは値を求める関数を登録し，snapshot()の呼び出し時に評価する．
+ */
+public class GossipMetrics {
+    // 名前ごとのメトリクス．各フィールドの初期化時に登録する
+    private final Map<String, LongAdder> counters = new LinkedHashMap<>();
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+
+    // 送受信
+    public final LongAdder packetsSent = counter("packetsSent");
+    public final LongAdder bytesSent = counter("bytesSent");
+    public final LongAdder sendFailures = counter("sendFailures");
+    public final LongAdder packetsDropped = counter("packetsDropped");// 送信バッファが満杯で送信できなかったパケットの数
+    public final LongAdder packetsReceived = counter("packetsReceived");
+    public final LongAdder bytesReceived = counter("bytesReceived");
+    public final LongAdder decodeFailures = counter("decodeFailures");
+    public final LongAdder coalescedMessages = counter("coalescedMessages");// 他のメッセージと同じパケットで送信した数
+    // メンバーシップの変化
+    public final LongAdder newMembers = counter("newMembers");
+    public final LongAdder suspectedMembers = counter("suspectedMembers");
+    public final LongAdder failedMembers = counter("failedMembers");
+    public final LongAdder revivedMembers = counter("revivedMembers");
+    public final LongAdder removedMembers = counter("removedMembers");
+    public final LongAdder droppedEvents = counter("droppedEvents");// 配送待ちが満杯で破棄したイベントの数
+    // 受信したメッセージを統合するのにかかった時間（ナノ秒）
+    public final Histogram mergeLatencyNanos = histogram("mergeLatencyNanos");
+    // 各ノードのハートビートの到着間隔（ナノ秒）
+    public final Histogram heartbeatIntervalNanos = histogram("heartbeatIntervalNanos");
+
+    /**
+     * ゲージを登録するメソッド
+     * 同じ名前のゲージがあれば置き換える．
+     *
+     * @param name
+     * @param gauge
+     */
+    public synchronized void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * 現在の全メトリクスの値を集計するメソッド
+     *
+     * @return
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new LinkedHashMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        Map<String, HistogramSnapshot> histogramValues = new LinkedHashMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+        Map<String, Long> gaugeValues = new LinkedHashMap<>();
+        synchronized (this) {
+            gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsLong()));
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+    }
+
+    private LongAdder counter(String name) {
+        LongAdder counter = new LongAdder();
+        counters.put(name, counter);
+        return counter;
+    }
+
+    private Histogram histogram(String name) {
+        Histogram histogram = new Histogram();
+        histograms.put(name, histogram);
+        return histogram;
+    }
+}
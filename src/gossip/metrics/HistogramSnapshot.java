@@ -0,0 +1,68 @@
+package gossip.metrics;
+
+/**
+ * ある時点のヒストグラムの集計結果
+ */
+public class HistogramSnapshot {
+    private final long count;// 記録した値の数
+    private final long sum;// 記録した値の合計
+    private final long max;// 最大値
+    private final long p50;// 中央値
+    private final long p90;
+    private final long p99;
+    private final long p999;
+
+    public HistogramSnapshot(long count, long sum, long max, long p50, long p90, long p99, long p999) {
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * 平均値を返すメソッド
+     * 値が記録されていない場合は0を返す．
+     *
+     * @return
+     */
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " mean=" + String.format("%.1f", getMean()) + " p50=" + p50
+                + " p90=" + p90 + " p99=" + p99 + " p999=" + p999 + " max=" + max;
+    }
+}
@@ -0,0 +1,130 @@
+package gossip.metrics;
+
+import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.lang.management.ManagementFactory;
+import javax.management.Attribute;
+import javax.management.ObjectName;
+import javax.management.MBeanInfo;
+import javax.management.AttributeList;
+import javax.management.DynamicMBean;
+import javax.management.MBeanServer;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.AttributeNotFoundException;
+
+/**
+ * GossipMetricsをJMXで公開するMBean
+ * カウンタとゲージはそのまま，ヒストグラムは「名前.p99」のように統計量ごとの属性として公開する．
+ * 属性の値は読み取りのたびにGossipMetricsから集計する．
+ */
+public class MetricsMBean implements DynamicMBean {
+    private static final String[] HISTOGRAM_STATISTICS = { "count", "mean", "p50", "p90", "p99", "p999", "max" };
+
+    private final GossipMetrics metrics;
+    private final ObjectName objectName;
+
+    public MetricsMBean(GossipMetrics metrics, ObjectName objectName) {
+        this.metrics = metrics;
+        this.objectName = objectName;
+    }
+
+    /**
+     * プラットフォームのMBeanServerに登録するメソッド
+     * 登録に失敗した場合はエラーを出力し，計測はそのまま続ける．
+     *
+     * @param metrics
+     * @param name    ObjectNameのname属性
+     * @return 登録したMBean．失敗した場合はnull
+     */
+    public static MetricsMBean register(GossipMetrics metrics, String name) {
+        try {
+            ObjectName objectName = new ObjectName("gossip:type=GossipService,name=" + ObjectName.quote(name));
+            MetricsMBean bean = new MetricsMBean(metrics, objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, objectName);
+            return bean;
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * MBeanServerから登録を解除するメソッド
+     */
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not unregister metrics MBean " + objectName + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = attributes().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Object> values = attributes();
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            Object value = values.get(name);
+            if (value != null) {
+                list.add(new Attribute(name, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("No operations: " + actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : attributes().entrySet()) {
+            infos.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                    entry.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Gossip protocol metrics",
+                infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    private Map<String, Object> attributes() {
+        MetricsSnapshot snapshot = metrics.snapshot();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.putAll(snapshot.getCounters());
+        values.putAll(snapshot.getGauges());
+        snapshot.getHistograms().forEach((name, histogram) -> {
+            Object[] statistics = { histogram.getCount(), histogram.getMean(), histogram.getP50(),
+                    histogram.getP90(), histogram.getP99(), histogram.getP999(), histogram.getMax() };
+            for (int i = 0; i < HISTOGRAM_STATISTICS.length; i++) {
+                values.put(name + "." + HISTOGRAM_STATISTICS[i], statistics[i]);
+            }
+        });
+        return values;
+    }
+}
@@ -0,0 +1,78 @@
+package gossip.metrics;
+
+import java.util.Map;
+import java.util.Collections;
+
+/**
+ * ある時点のメトリクスの値をまとめたクラス
+ * カウンタとゲージは名前と値，ヒストグラムは名前と集計結果の組で保持する．
+ */
+public class MetricsSnapshot {
+    private final long timestampMillis;// 集計した時刻
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, HistogramSnapshot> histograms;
+
+    public MetricsSnapshot(long timestampMillis, Map<String, Long> counters, Map<String, Long> gauges,
+            Map<String, HistogramSnapshot> histograms) {
+        this.timestampMillis = timestampMillis;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * カウンタの値を返すメソッド
+     *
+     * @param name
+     * @return 存在しない場合は0
+     */
+    public long getCounter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    /**
+     * ゲージの値を返すメソッド
+     *
+     * @param name
+     * @return 存在しない場合は0
+     */
+    public long getGauge(String name) {
+        return gauges.getOrDefault(name, 0L);
+    }
+
+    /**
+     * ヒストグラムの集計結果を返すメソッド
+     *
+     * @param name
+     * @return 存在しない場合はnull
+     */
+    public HistogramSnapshot getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        counters.forEach((name, value) -> builder.append(name).append('=').append(value).append('\n'));
+        gauges.forEach((name, value) -> builder.append(name).append('=').append(value).append('\n'));
+        histograms.forEach((name, value) -> builder.append(name).append(": ").append(value).append('\n'));
+        return builder.toString();
+    }
+}
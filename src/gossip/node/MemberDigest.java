@@ -0,0 +1,96 @@
+package gossip.node;
+
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+
+/**
+ * ゴシップメッセージに相乗りさせるノード情報の要約を表すクラス
+ * アドレス，シーケンス番号，状態のみを保持する．
+ */
+public class MemberDigest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final InetSocketAddress address;// ソケットのアドレス
+    private final long heartbeatSequenceNumber;// シーケンス番号
+    private final long incarnation;// インカーネーション番号
+    private final NodeState state;// ノードの状態
+    private final long stateVersion;// 送信元が保持しているアプリケーションの状態の版番号
+
+    public MemberDigest(InetSocketAddress address, long heartbeatSequenceNumber, long incarnation,
+            NodeState state, long stateVersion) {
+        this.address = address;
+        this.heartbeatSequenceNumber = heartbeatSequenceNumber;
+        this.incarnation = incarnation;
+        this.state = state;
+        this.stateVersion = stateVersion;
+    }
+
+    public MemberDigest(InetSocketAddress address, long heartbeatSequenceNumber, long incarnation,
+            NodeState state) {
+        this(address, heartbeatSequenceNumber, incarnation, state, 0);
+    }
+
+    /**
+     * ソケットアドレスのゲッター
+     *
+     * @return
+     */
+    public InetSocketAddress getSocketAddress() {
+        return address;
+    }
+
+    /**
+     * ノードの識別番号のゲッター
+     *
+     * @return
+     */
+    public String getUniqueId() {
+        return address.toString();
+    }
+
+    /**
+     * シーケンス番号のゲッター
+     *
+     * @return
+     */
+    public long getSequenceNumber() {
+        return heartbeatSequenceNumber;
+    }
+
+    /**
+     * インカーネーション番号のゲッター
+     *
+     * @return
+     */
+    public long getIncarnation() {
+        return incarnation;
+    }
+
+    /**
+     * ノードの状態のゲッター
+     *
+     * @return
+     */
+    public NodeState getState() {
+        return state;
+    }
+
+    /**
+     * 送信元が保持しているアプリケーションの状態の版番号のゲッター
+     *
+     * @return
+     */
+    public long getStateVersion() {
+        return stateVersion;
+    }
+
+    /**
+     * アプリケーションの状態の版番号を置き換えた要約を返すメソッド
+     *
+     * @param stateVersion
+     * @return
+     */
+    public MemberDigest withStateVersion(long stateVersion) {
+        return new MemberDigest(address, heartbeatSequenceNumber, incarnation, state, stateVersion);
+    }
+}
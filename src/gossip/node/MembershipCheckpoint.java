@@ -0,0 +1,228 @@
+package gossip.node;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.net.InetAddress;
+import java.nio.MappedByteBuffer;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.net.UnknownHostException;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MembershipTableの内容をメモリマップしたファイルに保存するクラス
+ * 識別番号ごとに固定長のレコードを割り当て，前回の保存から変化したフィールドのみを書き換える．
+ * 書き込みはメモリへのコピーのみで，ディスクへの反映はOSに任せる．close()でのみ反映を待つ．
+ * 再起動時にload()で読み出し，ノードの一覧を再発見せずに復元する．
+ *
+ * ファイルの形式
+ * ヘッダ: マジックナンバー(4) | 形式の版(4) | レコードの数(4)
+ * レコード: 状態(1) | アドレスの種類(1) | ポート番号(2) | アドレス(16) | シーケンス番号(8) | インカーネーション番号(8) | 予約(4)
+ * 状態は未使用の場合FREE，アドレスの種類はIPv4が4，IPv6が16．
+ */
+public class MembershipCheckpoint implements Closeable {
+    private static final int MAGIC = 0x47534350;// "GSCP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int RECORD_SIZE = 40;
+    private static final int STATE_OFFSET = 0;
+    private static final int FAMILY_OFFSET = 1;
+    private static final int PORT_OFFSET = 2;
+    private static final int ADDRESS_OFFSET = 4;
+    private static final int HEARTBEAT_OFFSET = 20;
+    private static final int INCARNATION_OFFSET = 28;
+    private static final byte FREE = -1;// 未使用のレコードの状態
+    private static final byte UNKNOWN = -2;// ファイルの内容が不明であることを表す状態
+    private static final int CHUNK_SIZE = 1024;// 表のロックを保持したまま書き込むレコードの数
+    private static final NodeState[] STATES = NodeState.values();
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;// ファイルに確保したレコードの数
+
+    // 識別番号ごとに，ファイルに書き込んだ値
+    private long[] writtenKeys = new long[0];
+    private long[] writtenHeartbeats = new long[0];
+    private long[] writtenIncarnations = new long[0];
+    private byte[] writtenStates = new byte[0];
+
+    /**
+     * ファイルを開き，存在しない場合は作成するコンストラクタ
+     *
+     * @param path
+     * @throws IOException
+     */
+    public MembershipCheckpoint(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int stored = 0;
+        if (channel.size() >= HEADER_SIZE) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == FORMAT_VERSION) {
+                // 書き込み途中で終了した場合に備え，ファイルの大きさに収まるレコードのみを使用する
+                stored = (int) Math.min(header.getInt(8), (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+            }
+        }
+        map(Math.max(stored, 16));
+        if (stored == 0) {
+            // 形式の異なるファイルや新しいファイルは全て未使用とする
+            for (int i = 0; i < capacity; i++) {
+                buffer.put(offsetOf(i) + STATE_OFFSET, FREE);
+            }
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putInt(8, capacity);
+    }
+
+    /**
+     * 保存されているノードの情報を読み出すメソッド
+     * 壊れたレコードは無視する．
+     *
+     * @return
+     */
+    public synchronized List<MemberDigest> load() {
+        List<MemberDigest> members = new ArrayList<>();
+        byte[] address = new byte[16];
+        for (int i = 0; i < capacity; i++) {
+            int offset = offsetOf(i);
+            byte state = buffer.get(offset + STATE_OFFSET);
+            byte family = buffer.get(offset + FAMILY_OFFSET);
+            if (state < 0 || state >= STATES.length || (family != 4 && family != 16)) {
+                continue;
+            }
+            for (int j = 0; j < family; j++) {
+                address[j] = buffer.get(offset + ADDRESS_OFFSET + j);
+            }
+            int port = buffer.getShort(offset + PORT_OFFSET) & 0xFFFF;
+            try {
+                InetAddress inetAddress = InetAddress.getByAddress(Arrays.copyOf(address, family));
+                members.add(new MemberDigest(new InetSocketAddress(inetAddress, port),
+                        buffer.getLong(offset + HEARTBEAT_OFFSET), buffer.getLong(offset + INCARNATION_OFFSET),
+                        STATES[state]));
+            } catch (UnknownHostException e) {
+                // 4バイトと16バイトのアドレスでは発生しない
+                throw new IllegalStateException(e);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * 表の現在の内容を書き込むメソッド
+     * 前回の書き込みから変化したフィールドのみを書き換える．
+     * 受信処理を長く止めないように，表のロックはCHUNK_SIZE個のレコードごとに取り直す．
+     *
+     * @param table
+     * @throws IOException
+     */
+    public synchronized void write(MembershipTable table) throws IOException {
+        int limit = table.idLimit();
+        if (limit > capacity) {
+            map(Math.max(limit, capacity * 2));
+        }
+        for (int from = 0; from < capacity; from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, capacity);
+            synchronized (table) {
+                int currentLimit = Math.min(table.idLimit(), capacity);
+                for (int id = from; id < to; id++) {
+                    if (id < currentLimit && table.contains(id)) {
+                        writeRecord(table, id);
+                    } else if (writtenStates[id] != FREE) {
+                        buffer.put(offsetOf(id) + STATE_OFFSET, FREE);
+                        writtenStates[id] = FREE;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 書き込んだ内容をディスクに反映し，ファイルを閉じるメソッド
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * 1つのノードのレコードを書き込むメソッド
+     * アドレスが変わった場合は，書き込みの途中で読まれても使用されないように，状態を最後に書き込む．
+     */
+    private void writeRecord(MembershipTable table, int id) {
+        int offset = offsetOf(id);
+        long key = table.addressKey(id);
+        byte state = (byte) table.getState(id).ordinal();
+        if (writtenStates[id] == FREE || writtenStates[id] == UNKNOWN || key != writtenKeys[id]
+                || key == MembershipTable.NOT_IPV4) {
+            buffer.put(offset + STATE_OFFSET, FREE);
+            writeAddress(offset, key, table.getAddress(id));
+            writtenKeys[id] = key;
+            writtenStates[id] = FREE;
+            writtenHeartbeats[id] = -1;
+            writtenIncarnations[id] = -1;
+        }
+        long heartbeat = table.getHeartbeat(id);
+        if (heartbeat != writtenHeartbeats[id]) {
+            buffer.putLong(offset + HEARTBEAT_OFFSET, heartbeat);
+            writtenHeartbeats[id] = heartbeat;
+        }
+        long incarnation = table.getIncarnation(id);
+        if (incarnation != writtenIncarnations[id]) {
+            buffer.putLong(offset + INCARNATION_OFFSET, incarnation);
+            writtenIncarnations[id] = incarnation;
+        }
+        if (state != writtenStates[id]) {
+            buffer.put(offset + STATE_OFFSET, state);
+            writtenStates[id] = state;
+        }
+    }
+
+    private void writeAddress(int offset, long key, InetSocketAddress address) {
+        byte[] bytes;
+        int port;
+        if (key != MembershipTable.NOT_IPV4) {
+            bytes = new byte[] { (byte) (key >>> 40), (byte) (key >>> 32), (byte) (key >>> 24), (byte) (key >>> 16) };
+            port = (int) (key & 0xFFFF);
+        } else {
+            bytes = address.getAddress().getAddress();
+            port = address.getPort();
+        }
+        buffer.put(offset + FAMILY_OFFSET, (byte) bytes.length);
+        buffer.putShort(offset + PORT_OFFSET, (short) port);
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(offset + ADDRESS_OFFSET + i, bytes[i]);
+        }
+    }
+
+    /**
+     * ファイルをnewCapacity個のレコードの大きさでマップし直すメソッド
+     * 新しく確保したレコードは未使用とし，書き込み済みの値の記録も拡張する．
+     */
+    private void map(int newCapacity) throws IOException {
+        int oldCapacity = capacity;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+        capacity = newCapacity;
+        writtenKeys = Arrays.copyOf(writtenKeys, newCapacity);
+        writtenHeartbeats = Arrays.copyOf(writtenHeartbeats, newCapacity);
+        writtenIncarnations = Arrays.copyOf(writtenIncarnations, newCapacity);
+        writtenStates = Arrays.copyOf(writtenStates, newCapacity);
+        // 最初のマップではファイルの内容が不明のため，全てのレコードを書き込み直す
+        Arrays.fill(writtenStates, oldCapacity, newCapacity, oldCapacity == 0 ? UNKNOWN : FREE);
+        for (int i = oldCapacity; oldCapacity > 0 && i < newCapacity; i++) {
+            buffer.put(offsetOf(i) + STATE_OFFSET, FREE);
+        }
+        buffer.putInt(8, newCapacity);
+    }
+
+    private static int offsetOf(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+}
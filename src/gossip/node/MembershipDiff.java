@@ -0,0 +1,86 @@
+package gossip.node;
+
+import java.util.List;
+import java.util.Collections;
+import java.net.InetSocketAddress;
+
+/**
+ * 2つのMembershipSnapshotの間のメンバーシップの変化を表すクラス
+ */
+public class MembershipDiff {
+    private final long fromVersion;// 比較元の版番号
+    private final long toVersion;// 比較先の版番号
+    private final List<InetSocketAddress> joined;// 追加されたノード
+    private final List<InetSocketAddress> changed;// 状態が変化したノード
+    private final List<InetSocketAddress> removed;// 削除されたノード
+
+    MembershipDiff(long fromVersion, long toVersion, List<InetSocketAddress> joined,
+            List<InetSocketAddress> changed, List<InetSocketAddress> removed) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.joined = Collections.unmodifiableList(joined);
+        this.changed = Collections.unmodifiableList(changed);
+        this.removed = Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * 比較元の版番号のゲッター
+     *
+     * @return
+     */
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * 比較先の版番号のゲッター
+     *
+     * @return
+     */
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    /**
+     * 追加されたノードのリストを返すメソッド
+     *
+     * @return
+     */
+    public List<InetSocketAddress> getJoined() {
+        return joined;
+    }
+
+    /**
+     * 状態が変化したノードのリストを返すメソッド
+     * 変化後の状態は比較先のスナップショットのgetState()で取得する．
+     *
+     * @return
+     */
+    public List<InetSocketAddress> getChanged() {
+        return changed;
+    }
+
+    /**
+     * 削除されたノードのリストを返すメソッド
+     *
+     * @return
+     */
+    public List<InetSocketAddress> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * 変化がないか判定するメソッド
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return joined.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "MembershipDiff{" + fromVersion + "->" + toVersion + ", joined=" + joined
+                + ", changed=" + changed + ", removed=" + removed + "}";
+    }
+}
@@ -0,0 +1,159 @@
+package gossip.node;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.net.InetSocketAddress;
+
+/**
+ * ある時点のメンバーシップを表す不変のスナップショット
+ * 作成後に変更されないため，ロックを取らずに複数のスレッドから参照できる．
+ * 版番号はMembershipTableの版番号で，ノードの追加，削除，状態の変化のたびに増える．
+ */
+public class MembershipSnapshot {
+    private final long version;// 版番号
+    private final List<InetSocketAddress> allMembers;// 全てのノード
+    private final List<InetSocketAddress> aliveMembers;// 故障と判定されていないノード
+    private final List<InetSocketAddress> suspectedMembers;// 故障が疑われているノード
+    private final List<InetSocketAddress> failedMembers;// 故障と判定されたノード
+    private final Map<InetSocketAddress, NodeState> states;// アドレスから状態への対応
+
+    /**
+     * @param version
+     * @param addresses 各ノードのアドレス
+     * @param states    addressesと同じ順の各ノードの状態
+     */
+    MembershipSnapshot(long version, InetSocketAddress[] addresses, NodeState[] states) {
+        this.version = version;
+        List<InetSocketAddress> alive = new ArrayList<>(addresses.length);
+        List<InetSocketAddress> suspected = new ArrayList<>();
+        List<InetSocketAddress> failed = new ArrayList<>();
+        Map<InetSocketAddress, NodeState> stateMap = new HashMap<>(addresses.length * 2);
+        for (int i = 0; i < addresses.length; i++) {
+            stateMap.put(addresses[i], states[i]);
+            if (states[i] == NodeState.FAILED) {
+                failed.add(addresses[i]);
+            } else {
+                alive.add(addresses[i]);
+                if (states[i] == NodeState.SUSPECT) {
+                    suspected.add(addresses[i]);
+                }
+            }
+        }
+        this.allMembers = Collections.unmodifiableList(Arrays.asList(addresses));
+        this.aliveMembers = Collections.unmodifiableList(alive);
+        this.suspectedMembers = Collections.unmodifiableList(suspected);
+        this.failedMembers = Collections.unmodifiableList(failed);
+        this.states = Collections.unmodifiableMap(stateMap);
+    }
+
+    /**
+     * 版番号のゲッター
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 全てのノードのリストを返すメソッド
+     * 自身のノードも含む．
+     *
+     * @return 変更できないリスト
+     */
+    public List<InetSocketAddress> getAllMembers() {
+        return allMembers;
+    }
+
+    /**
+     * 故障と判定されていないノードのリストを返すメソッド
+     * 故障が疑われているノードも含む．
+     *
+     * @return 変更できないリスト
+     */
+    public List<InetSocketAddress> getAliveMembers() {
+        return aliveMembers;
+    }
+
+    /**
+     * 故障が疑われているノードのリストを返すメソッド
+     *
+     * @return 変更できないリスト
+     */
+    public List<InetSocketAddress> getSuspectedMembers() {
+        return suspectedMembers;
+    }
+
+    /**
+     * 故障と判定されたノードのリストを返すメソッド
+     *
+     * @return 変更できないリスト
+     */
+    public List<InetSocketAddress> getFailedMembers() {
+        return failedMembers;
+    }
+
+    /**
+     * ノードの状態を返すメソッド
+     *
+     * @param address
+     * @return 保持していない場合はnull
+     */
+    public NodeState getState(InetSocketAddress address) {
+        return states.get(address);
+    }
+
+    /**
+     * ノードを保持しているか判定するメソッド
+     *
+     * @param address
+     * @return
+     */
+    public boolean contains(InetSocketAddress address) {
+        return states.containsKey(address);
+    }
+
+    /**
+     * 保持しているノードの数を返すメソッド
+     *
+     * @return
+     */
+    public int size() {
+        return allMembers.size();
+    }
+
+    /**
+     * 以前のスナップショットからの変化を求めるメソッド
+     *
+     * @param previous
+     * @return
+     */
+    public MembershipDiff diff(MembershipSnapshot previous) {
+        List<InetSocketAddress> joined = new ArrayList<>();
+        List<InetSocketAddress> changed = new ArrayList<>();
+        List<InetSocketAddress> removed = new ArrayList<>();
+        for (InetSocketAddress address : allMembers) {
+            NodeState before = previous.getState(address);
+            if (before == null) {
+                joined.add(address);
+            } else if (before != states.get(address)) {
+                changed.add(address);
+            }
+        }
+        for (InetSocketAddress address : previous.allMembers) {
+            if (!states.containsKey(address)) {
+                removed.add(address);
+            }
+        }
+        return new MembershipDiff(previous.version, version, joined, changed, removed);
+    }
+
+    @Override
+    public String toString() {
+        return "MembershipSnapshot{version=" + version + ", members=" + states + "}";
+    }
+}
@@ -0,0 +1,731 @@
+package gossip.node;
+
+import gossip.clock.Clock;
+import gossip.config.GossipConfig;
+import gossip.detector.FailureDetectorMode;
+import gossip.detector.PhiAccrualDetector;
+import gossip.metrics.Histogram;
+
+import java.util.Arrays;
+import java.net.InetAddress;
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ネットワーク内のノードの情報を保持する表
+ * 各ノードに整数の識別番号を割り当て，シーケンス番号や期限，状態を識別番号で
+ * 添字付けしたプリミティブ配列に保持する．ノードごとのオブジェクトを持たないため，
+ * ノード数が多くてもメモリ使用量とGCの負荷が小さい．
+ * IPv4のアドレスはアドレスとポート番号を1つのlongに詰めて保持し，
+ * アドレスから識別番号への変換はオープンアドレス法のハッシュ表で行うため，検索時にオブジェクトを生成しない．
+ * 送信のたびに参照するソケットアドレスは追加時に1度だけ生成し，ロックを取らずに読み出せるようにする．
+ * 時刻は表の作成時からの経過時間で，Clock.nanoTime()に基づく単調増加の値を使用する．
+ */
+public class MembershipTable {
+    public static final int NO_MEMBER = -1;// ノードが存在しないことを表す識別番号
+    private static final int INITIAL_CAPACITY = 16;
+    private static final byte FREE = -1;// 識別番号が未使用であることを表す状態
+    private static final NodeState[] STATES = NodeState.values();
+    static final long NOT_IPV4 = -1;// IPv4以外のアドレスであることを表すキー
+
+    private final GossipConfig config;
+    private final Clock clock;
+    private final long originNanos;// 表の作成時刻
+    private final long failureTimeoutNanos;
+    private final long cleanupTimeoutNanos;
+    private final boolean phiAccrual;
+    private final Histogram heartbeatIntervals;// ハートビートの到着間隔を記録するヒストグラム．記録しない場合はnull
+
+    // 識別番号で添字付けした各ノードの情報
+    private long[] addressKeys;// IPv4のアドレスとポート番号を詰めた値．IPv4以外はNOT_IPV4
+    // ソケットアドレス．削除済みはnull．要素の変更後に配列を代入し直し，ロックを取らない読み出しに公開する
+    private volatile InetSocketAddress[] addresses;
+    private long[] heartbeats;// シーケンス番号
+    private long[] incarnations;// インカーネーション番号
+    private long[] lastUpdateNanos;// 最後にシーケンス番号が更新された時刻
+    private long[] suspicionDeadlines;// 疑いが晴れなければ故障とみなす時刻．疑いがない場合は-1
+    private long[] detectionDeadlines;// 故障検知のタイマーに登録されている期限（ミリ秒）
+    private byte[] states;// NodeStateの番号．未使用の場合はFREE
+    private PhiAccrualDetector[] phiDetectors;// PHI_ACCRUALの場合のみ使用する
+
+    private int[] index;// アドレスのハッシュ表．識別番号+1を格納し，空きは0
+    private int[] freeIds;// 削除により空いた識別番号
+    private int freeCount = 0;
+    private int[] suspects = new int[INITIAL_CAPACITY];// 故障が疑われているノードの識別番号．少数のため線形に探索する
+    private int suspectCount = 0;
+    private int idLimit = 0;// これまでに割り当てた識別番号の上限
+    private int size = 0;
+    private volatile long version = 0;// ノードの追加，削除，状態の変化のたびに増える版番号
+
+    public MembershipTable(GossipConfig config, Clock clock) {
+        this(config, clock, null);
+    }
+
+    /**
+     * ハートビートの到着間隔をheartbeatIntervalsに記録するコンストラクタ
+     *
+     * @param config
+     * @param clock
+     * @param heartbeatIntervals
+     */
+    public MembershipTable(GossipConfig config, Clock clock, Histogram heartbeatIntervals) {
+        this.config = config;
+        this.heartbeatIntervals = heartbeatIntervals;
+        this.clock = clock;
+        this.originNanos = clock.nanoTime();
+        this.failureTimeoutNanos = config.failureTimeout.toNanos();
+        this.cleanupTimeoutNanos = config.cleanupTimeout.toNanos();
+        this.phiAccrual = config.failureDetectorMode == FailureDetectorMode.PHI_ACCRUAL;
+        allocate(INITIAL_CAPACITY);
+        index = new int[INITIAL_CAPACITY * 2];
+        freeIds = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * 表の作成時からの経過時間をナノ秒で返すメソッド
+     *
+     * @return
+     */
+    public long nanoTime() {
+        return clock.nanoTime() - originNanos;
+    }
+
+    /**
+     * 表の作成時からの経過時間をミリ秒で返すメソッド
+     * 故障検知のタイマーの時刻として使用する．
+     *
+     * @return
+     */
+    public long currentMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanoTime());
+    }
+
+    /**
+     * アドレスに対応する識別番号を返すメソッド
+     *
+     * @param address
+     * @return 保持していない場合はNO_MEMBER
+     */
+    public synchronized int idOf(InetSocketAddress address) {
+        int slot = findSlot(keyOf(address), address);
+        return slot >= 0 ? index[slot] - 1 : NO_MEMBER;
+    }
+
+    /**
+     * ノードを追加するメソッド
+     *
+     * @param address
+     * @param heartbeat
+     * @param incarnation
+     * @return 追加したノードの識別番号．すでに保持している場合はNO_MEMBER
+     */
+    public synchronized int add(InetSocketAddress address, long heartbeat, long incarnation) {
+        long key = keyOf(address);
+        int slot = findSlot(key, address);
+        if (slot >= 0) {
+            return NO_MEMBER;
+        }
+        int id = freeCount > 0 ? freeIds[--freeCount] : idLimit++;
+        if (id >= addressKeys.length) {
+            allocate(addressKeys.length * 2);
+        }
+        long now = nanoTime();
+        addressKeys[id] = key;
+        InetSocketAddress[] current = addresses;
+        current[id] = key == NOT_IPV4 ? address : toAddress(key);
+        addresses = current;// volatileへの書き込みで要素の変更を公開する
+        heartbeats[id] = heartbeat;
+        incarnations[id] = incarnation;
+        lastUpdateNanos[id] = now;
+        suspicionDeadlines[id] = -1;
+        detectionDeadlines[id] = -1;
+        states[id] = (byte) NodeState.ALIVE.ordinal();
+        version++;
+        if (phiAccrual) {
+            phiDetectors[id] = new PhiAccrualDetector(config.phiThreshold, config.phiWindowSize,
+                    config.phiMinStdDeviation.toMillis(), config.phiAcceptablePause.toMillis(),
+                    config.updateFrequency.toMillis(), TimeUnit.NANOSECONDS.toMillis(now));
+        }
+        size++;
+        // 使用率が1/2を超えないようにハッシュ表を拡張する
+        if (size * 2 > index.length) {
+            rehash(index.length * 2);
+        } else {
+            index[~slot] = id + 1;
+        }
+        return id;
+    }
+
+    /**
+     * ノードを削除するメソッド
+     * 削除した識別番号は後で追加されるノードに再利用される．
+     *
+     * @param id
+     * @return 削除した場合はtrue
+     */
+    public synchronized boolean remove(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        InetSocketAddress[] current = addresses;
+        removeSlot(findSlot(addressKeys[id], current[id]));
+        current[id] = null;
+        addresses = current;
+        if (states[id] == NodeState.SUSPECT.ordinal()) {
+            removeSuspect(id);
+        }
+        states[id] = FREE;
+        version++;
+        detectionDeadlines[id] = -1;
+        if (phiAccrual) {
+            phiDetectors[id] = null;
+        }
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+        size--;
+        return true;
+    }
+
+    /**
+     * 識別番号が使用中か判定するメソッド
+     *
+     * @param id
+     * @return
+     */
+    public synchronized boolean contains(int id) {
+        return id >= 0 && id < idLimit && states[id] != FREE;
+    }
+
+    /**
+     * 保持しているノードの数を返すメソッド
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 指定した状態のノードの数を返すメソッド
+     *
+     * @param state
+     * @return
+     */
+    public synchronized int count(NodeState state) {
+        int count = 0;
+        for (int id = 0; id < idLimit; id++) {
+            if (states[id] == state.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 版番号のゲッター
+     * ノードの追加，削除，状態の変化のたびに増える．シーケンス番号の更新では変化しない．
+     * ロックを取らずに読み出せる．
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 現在のノードのアドレスと状態を写し取った不変のスナップショットを作成するメソッド
+     *
+     * @return
+     */
+    public synchronized MembershipSnapshot snapshot() {
+        InetSocketAddress[] addresses = new InetSocketAddress[size];
+        NodeState[] memberStates = new NodeState[size];
+        int count = 0;
+        for (int id = 0; id < idLimit; id++) {
+            if (states[id] != FREE) {
+                addresses[count] = getAddress(id);
+                memberStates[count] = STATES[states[id]];
+                count++;
+            }
+        }
+        return new MembershipSnapshot(version, addresses, memberStates);
+    }
+
+    /**
+     * これまでに割り当てた識別番号の上限を返すメソッド
+     * 識別番号は再利用されるため，0からこの値までを走査すれば配列を生成せずに全ノードを列挙できる．
+     *
+     * @return
+     */
+    public synchronized int idLimit() {
+        return idLimit;
+    }
+
+    /**
+     * 故障が疑われているノードの数を返すメソッド
+     * ロックを取らずにsuspectAt()と合わせて走査する場合，走査中に疑いが晴れたノードを返すことがある．
+     *
+     * @return
+     */
+    public synchronized int suspectCount() {
+        return suspectCount;
+    }
+
+    /**
+     * 故障が疑われているノードのindex番目の識別番号を返すメソッド
+     *
+     * @param index 0以上suspectCount()未満
+     * @return
+     */
+    public synchronized int suspectAt(int index) {
+        return suspects[index];
+    }
+
+    /**
+     * IPv4のアドレスとポート番号を詰めた値を返すメソッド
+     *
+     * @param id
+     * @return IPv4以外のアドレスの場合はNOT_IPV4
+     */
+    synchronized long addressKey(int id) {
+        return addressKeys[id];
+    }
+
+    /**
+     * 使用中の識別番号を配列で返すメソッド
+     *
+     * @return
+     */
+    public synchronized int[] memberIds() {
+        int[] ids = new int[size];
+        int count = 0;
+        for (int id = 0; id < idLimit; id++) {
+            if (states[id] != FREE) {
+                ids[count++] = id;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * ソケットアドレスのゲッター
+     * 追加時に生成したアドレスを返し，ロックを取らない．
+     *
+     * @param id
+     * @return 削除済みの場合はnull
+     */
+    public InetSocketAddress getAddress(int id) {
+        return addresses[id];
+    }
+
+    /**
+     * シーケンス番号のゲッター
+     *
+     * @param id
+     * @return
+     */
+    public synchronized long getHeartbeat(int id) {
+        return heartbeats[id];
+    }
+
+    /**
+     * インカーネーション番号のゲッター
+     *
+     * @param id
+     * @return
+     */
+    public synchronized long getIncarnation(int id) {
+        return incarnations[id];
+    }
+
+    /**
+     * ノードの状態のゲッター
+     *
+     * @param id
+     * @return
+     */
+    public synchronized NodeState getState(int id) {
+        return states[id] != FREE ? STATES[states[id]] : null;
+    }
+
+    /**
+     * ノードが故障しているか返すメソッド
+     *
+     * @param id
+     * @return
+     */
+    public synchronized boolean hasFailed(int id) {
+        return states[id] == NodeState.FAILED.ordinal();
+    }
+
+    /**
+     * ノードが故障を疑われているか返すメソッド
+     *
+     * @param id
+     * @return
+     */
+    public synchronized boolean isSuspected(int id) {
+        return states[id] == NodeState.SUSPECT.ordinal();
+    }
+
+    /**
+     * シーケンス番号を更新するメソッド
+     * 現在よりも大きい場合のみ更新し，更新時刻を記録して疑いを解除する．
+     * 故障と判定されていた場合は生存に戻す．
+     *
+     * @param id
+     * @param heartbeat
+     * @return 更新した場合はtrue
+     */
+    public synchronized boolean updateHeartbeat(int id, long heartbeat) {
+        if (heartbeat <= heartbeats[id]) {
+            return false;
+        }
+        heartbeats[id] = heartbeat;
+        if (heartbeatIntervals != null) {
+            heartbeatIntervals.record(nanoTime() - lastUpdateNanos[id]);
+        }
+        touch(id);
+        // 新しいハートビートはノード自身が生存している証拠となる
+        clearSuspicion(id);
+        if (states[id] == NodeState.FAILED.ordinal()) {
+            setState(id, NodeState.ALIVE);
+        }
+        return true;
+    }
+
+    /**
+     * 自身のシーケンス番号をインクリメントするメソッド
+     *
+     * @param id
+     * @return インクリメント後のシーケンス番号
+     */
+    public synchronized long incrementHeartbeat(int id) {
+        heartbeats[id]++;
+        touch(id);
+        return heartbeats[id];
+    }
+
+    /**
+     * インカーネーション番号を更新するメソッド
+     * 現在よりも大きい場合のみ更新し，そのノードに対する疑いを解除する．
+     *
+     * @param id
+     * @param incarnation
+     * @return 更新した場合はtrue
+     */
+    public synchronized boolean updateIncarnation(int id, long incarnation) {
+        if (incarnation <= incarnations[id]) {
+            return false;
+        }
+        incarnations[id] = incarnation;
+        clearSuspicion(id);
+        return true;
+    }
+
+    /**
+     * 自身に対する疑いに反論するメソッド
+     * 疑われた際のインカーネーション番号よりも大きい番号に更新する．
+     *
+     * @param id
+     * @param suspectedIncarnation
+     */
+    public synchronized void refute(int id, long suspectedIncarnation) {
+        if (suspectedIncarnation >= incarnations[id]) {
+            incarnations[id] = suspectedIncarnation + 1;
+        }
+    }
+
+    /**
+     * ノードを故障の疑いありとするメソッド
+     *
+     * @param id
+     * @param timeoutNanos この時間内に疑いが解除されなければ故障とみなす
+     * @return 新たに疑いありとした場合は故障とみなす期限（ミリ秒），そうでなければ-1
+     */
+    public synchronized long suspect(int id, long timeoutNanos) {
+        if (states[id] == FREE || suspicionDeadlines[id] >= 0 || states[id] == NodeState.FAILED.ordinal()) {
+            return -1;
+        }
+        suspicionDeadlines[id] = nanoTime() + timeoutNanos;
+        setState(id, NodeState.SUSPECT);
+        return toMillisCeil(suspicionDeadlines[id]);
+    }
+
+    /**
+     * ノードが故障しているか判定し，状態を更新するメソッド
+     *
+     * @param id
+     * @return 判定後の状態
+     */
+    public synchronized NodeState checkIfFailed(int id) {
+        long now = nanoTime();
+        long suspicion = suspicionDeadlines[id];
+        NodeState state;
+        if (now > failureDeadline(id) || (suspicion >= 0 && now > suspicion)) {
+            state = NodeState.FAILED;
+        } else {
+            state = suspicion >= 0 ? NodeState.SUSPECT : NodeState.ALIVE;
+        }
+        setState(id, state);
+        return state;
+    }
+
+    /**
+     * 故障したノードの情報を削除するべきか判定するメソッド
+     *
+     * @param id
+     * @return
+     */
+    public synchronized boolean shouldCleanup(int id) {
+        return states[id] == NodeState.FAILED.ordinal() && nanoTime() > cleanupDeadline(id);
+    }
+
+    /**
+     * 次に故障判定を行うべき時刻をミリ秒で返すメソッド
+     * 故障している場合は削除の期限，疑いがある場合は疑いの期限と故障の期限の早い方を返す．
+     *
+     * @param id
+     * @return
+     */
+    public synchronized long getNextCheckDeadline(int id) {
+        if (states[id] == NodeState.FAILED.ordinal()) {
+            return toMillisCeil(cleanupDeadline(id));
+        }
+        long deadline = failureDeadline(id);
+        long suspicion = suspicionDeadlines[id];
+        return toMillisCeil(suspicion >= 0 ? Math.min(deadline, suspicion) : deadline);
+    }
+
+    /**
+     * 故障検知のタイマーに登録されている期限のゲッター
+     *
+     * @param id
+     * @return
+     */
+    public synchronized long getDetectionDeadline(int id) {
+        return detectionDeadlines[id];
+    }
+
+    /**
+     * 故障検知のタイマーに登録されている期限のセッター
+     *
+     * @param id
+     * @param deadline
+     */
+    public synchronized void setDetectionDeadline(int id, long deadline) {
+        detectionDeadlines[id] = deadline;
+    }
+
+    /**
+     * 現在のphiを返すメソッド
+     * PHI_ACCRUALを使用していない場合は0を返す．
+     *
+     * @param id
+     * @return
+     */
+    public synchronized double getPhi(int id) {
+        return phiAccrual ? phiDetectors[id].phi(TimeUnit.NANOSECONDS.toMillis(nanoTime())) : 0.0;
+    }
+
+    /**
+     * ゴシップメッセージに載せるノード情報の要約を作成するメソッド
+     *
+     * @param id
+     * @return 削除済みの場合はnull
+     */
+    public synchronized MemberDigest toDigest(int id) {
+        if (states[id] == FREE) {
+            return null;
+        }
+        return new MemberDigest(getAddress(id), heartbeats[id], incarnations[id], STATES[states[id]]);
+    }
+
+    private void touch(int id) {
+        long now = nanoTime();
+        lastUpdateNanos[id] = now;
+        if (phiAccrual) {
+            phiDetectors[id].heartbeat(TimeUnit.NANOSECONDS.toMillis(now));
+        }
+    }
+
+    private void clearSuspicion(int id) {
+        suspicionDeadlines[id] = -1;
+        if (states[id] == NodeState.SUSPECT.ordinal()) {
+            setState(id, NodeState.ALIVE);
+        }
+    }
+
+    /**
+     * ノードの状態を変更し，変化した場合は版番号を増やすメソッド
+     */
+    private void setState(int id, NodeState state) {
+        if (states[id] != state.ordinal()) {
+            if (states[id] == NodeState.SUSPECT.ordinal()) {
+                removeSuspect(id);
+            } else if (state == NodeState.SUSPECT) {
+                addSuspect(id);
+            }
+            states[id] = (byte) state.ordinal();
+            version++;
+        }
+    }
+
+    private void addSuspect(int id) {
+        if (suspectCount == suspects.length) {
+            suspects = Arrays.copyOf(suspects, suspectCount * 2);
+        }
+        suspects[suspectCount++] = id;
+    }
+
+    private void removeSuspect(int id) {
+        for (int i = 0; i < suspectCount; i++) {
+            if (suspects[i] == id) {
+                suspects[i] = suspects[--suspectCount];
+                return;
+            }
+        }
+    }
+
+    /**
+     * 更新がなければ故障と判定される時刻をナノ秒で返すメソッド
+     * PHI_ACCRUALの場合はphiが閾値を超える時刻を返す．
+     */
+    private long failureDeadline(int id) {
+        if (phiAccrual) {
+            return TimeUnit.MILLISECONDS.toNanos(phiDetectors[id].getFailureDeadline());
+        }
+        return lastUpdateNanos[id] + failureTimeoutNanos;
+    }
+
+    private long cleanupDeadline(int id) {
+        long failedAt = failureDeadline(id);
+        long suspicion = suspicionDeadlines[id];
+        if (suspicion >= 0) {
+            failedAt = Math.min(failedAt, suspicion);
+        }
+        return failedAt + cleanupTimeoutNanos;
+    }
+
+    /**
+     * 期限より前に判定しないように，ミリ秒に切り上げるメソッド
+     */
+    private static long toMillisCeil(long nanos) {
+        return (nanos + 999_999L) / 1_000_000L;
+    }
+
+    /**
+     * 各配列をcapacityまで拡張するメソッド
+     */
+    private void allocate(int capacity) {
+        int oldCapacity = addressKeys == null ? 0 : addressKeys.length;
+        addressKeys = addressKeys == null ? new long[capacity] : Arrays.copyOf(addressKeys, capacity);
+        addresses = addresses == null ? new InetSocketAddress[capacity] : Arrays.copyOf(addresses, capacity);
+        heartbeats = heartbeats == null ? new long[capacity] : Arrays.copyOf(heartbeats, capacity);
+        incarnations = incarnations == null ? new long[capacity] : Arrays.copyOf(incarnations, capacity);
+        lastUpdateNanos = lastUpdateNanos == null ? new long[capacity] : Arrays.copyOf(lastUpdateNanos, capacity);
+        suspicionDeadlines = suspicionDeadlines == null ? new long[capacity]
+                : Arrays.copyOf(suspicionDeadlines, capacity);
+        detectionDeadlines = detectionDeadlines == null ? new long[capacity]
+                : Arrays.copyOf(detectionDeadlines, capacity);
+        states = states == null ? new byte[capacity] : Arrays.copyOf(states, capacity);
+        Arrays.fill(states, oldCapacity, capacity, FREE);
+        if (phiAccrual) {
+            phiDetectors = phiDetectors == null ? new PhiAccrualDetector[capacity]
+                    : Arrays.copyOf(phiDetectors, capacity);
+        }
+    }
+
+    /**
+     * アドレスが格納されているハッシュ表の位置を返すメソッド
+     *
+     * @param key     keyOf()で求めた値
+     * @param address IPv4以外の場合に比較するアドレス
+     * @return 見つからない場合は，格納すべき位置をビット反転した負の値
+     */
+    private int findSlot(long key, InetSocketAddress address) {
+        int mask = index.length - 1;
+        int slot = hash(key, address) & mask;
+        while (true) {
+            int entry = index[slot];
+            if (entry == 0) {
+                return ~slot;
+            }
+            int id = entry - 1;
+            if (key != NOT_IPV4 ? addressKeys[id] == key : address.equals(addresses[id])) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * ハッシュ表から要素を削除し，後続の要素を詰めるメソッド
+     * 墓標を使わないため，削除を繰り返しても探索が長くならない．
+     */
+    private void removeSlot(int slot) {
+        int mask = index.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (index[next] != 0) {
+            int id = index[next] - 1;
+            int ideal = hash(addressKeys[id], addresses[id]) & mask;
+            // 本来の位置から空きまでの間にない要素のみ移動する
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                index[hole] = index[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        index = new int[capacity];
+        for (int id = 0; id < idLimit; id++) {
+            if (states[id] != FREE) {
+                index[~findSlot(addressKeys[id], addresses[id])] = id + 1;
+            }
+        }
+    }
+
+    /**
+     * IPv4のアドレスとポート番号を1つのlongに詰めるメソッド
+     * Inet4Address.hashCode()はアドレスそのものを返すため，バイト配列を生成せずに求められる．
+     *
+     * @param address
+     * @return IPv4以外の場合はNOT_IPV4
+     */
+    private static long keyOf(InetSocketAddress address) {
+        InetAddress inetAddress = address.getAddress();
+        if (inetAddress instanceof Inet4Address) {
+            return ((inetAddress.hashCode() & 0xFFFFFFFFL) << 16) | address.getPort();
+        }
+        return NOT_IPV4;
+    }
+
+    /**
+     * IPv4のアドレスとポート番号を詰めた値からソケットアドレスを生成するメソッド
+     */
+    private static InetSocketAddress toAddress(long key) {
+        byte[] address = { (byte) (key >>> 40), (byte) (key >>> 32), (byte) (key >>> 24), (byte) (key >>> 16) };
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(address), (int) (key & 0xFFFF));
+        } catch (UnknownHostException e) {
+            // 4バイトのアドレスでは発生しない
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 連続したアドレスでも偏らないように，ハッシュ値を攪拌するメソッド
+     */
+    private static int hash(long key, InetSocketAddress address) {
+        int h = (key != NOT_IPV4 ? Long.hashCode(key) : address.hashCode()) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,39 +1,29 @@
 package gossip.node;
 
-import gossip.config.GossipConfig;
-
-import java.time.Duration;
 import java.io.Serializable;
 import java.net.InetAddress;
-import java.time.LocalDateTime;
 import java.net.InetSocketAddress;
 
 /**
- * ノードを表すクラス
+ * ゴシップメッセージの送信元のノードを表すクラス
+ * 故障検知の状態はMembershipTableが保持するため，送信元として載せる値のみを持つ．
  */
 public class Node implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     private final InetSocketAddress address;// ソケットのアドレス
-    private long heartbeatSequenceNumber = 0;// シーケンス番号
-    private LocalDateTime lastUpdateTime = null;// 最後のアップデート時間
-    private volatile boolean failed = false;// ノードが故障しているかのbool値
-    private GossipConfig config;// ゴシッププロトコルの設定情報を保持するオブジェクト
+    private final long heartbeatSequenceNumber;// シーケンス番号
+    private long incarnation = 0;// 疑いに反論する際に増加させる番号
+    private long stateVersion = 0;// 公開しているアプリケーションの状態の版番号
 
-    public Node(InetSocketAddress address, long initialSequenceNumber, GossipConfig config) {
+    public Node(InetSocketAddress address, long sequenceNumber) {
         this.address = address;
-        this.heartbeatSequenceNumber = initialSequenceNumber;
-        this.config = config;
-
-        setLastUpdatedTime();
-    }
-
-    public void setConfig(GossipConfig config) {
-        this.config = config;
+        this.heartbeatSequenceNumber = sequenceNumber;
     }
 
     /**
      * HostNameのゲッター
-     * 
+     *
      * @return
      */
     public String getAddress() {
@@ -78,7 +68,7 @@ public class Node implements Serializable {
 
     /**
      * シーケンス番号を返すメソッド
-     * 
+     *
      * @return
      */
     public long getSequenceNumber() {
@@ -86,82 +76,55 @@ public class Node implements Serializable {
     }
 
     /**
-     * シークエンス番号のセッター
-     * 新しいゴシップが現在保有している情報よりも新しい場合，新しいゴシップのシークエンス番号を
-     * heartbeatSequenceNumberとして代入する．
-     *
-     * @param newSequenceNumber
-     */
-    public void updateSequenceNumber(long newSequenceNumber) {
-        if (newSequenceNumber > heartbeatSequenceNumber) {
-            heartbeatSequenceNumber = newSequenceNumber;
-            setLastUpdatedTime();
-
-            // System.out.println("Sequence number of current node "
-            // + this.getUniqueId() + " is " + this.getSequenceNumber()
-            // + " updated to " + newSequenceNumber);
-        }
-    }
-
-    /**
-     * ノードの故障状態のゲッター
+     * インカーネーション番号のゲッター
      *
      * @return
      */
-    public boolean hasFailed() {
-        return failed;
+    public long getIncarnation() {
+        return incarnation;
     }
 
     /**
-     * 故障状態のセッター
+     * インカーネーション番号を更新するメソッド
+     * 現在よりも大きい場合のみ更新する．
      *
-     * @param failed
-     */
-    public void setFailed(boolean failed) {
-        this.failed = failed;
-    }
-
-    /**
-     * アップデート時間を更新するメソッド
+     * @param newIncarnation
+     * @return 更新した場合はtrue
      */
-    public void setLastUpdatedTime() {
-        LocalDateTime updatedTime = LocalDateTime.now();
-        lastUpdateTime = updatedTime;
-
-        // System.out.println("Node " + this.getUniqueId() + " at " + updatedTime);
+    public boolean updateIncarnation(long newIncarnation) {
+        if (newIncarnation > incarnation) {
+            incarnation = newIncarnation;
+            return true;
+        }
+        return false;
     }
 
     /**
-     * ノードのシーケンス番号をインクリメントするメソッド
+     * 公開しているアプリケーションの状態の版番号のゲッター
+     *
+     * @return
      */
-    public void incrementSequenceNumber() {
-        heartbeatSequenceNumber++;
-        setLastUpdatedTime();
+    public long getStateVersion() {
+        return stateVersion;
     }
 
     /**
-     * ノードが故障しているか判定するメソッド
+     * 公開しているアプリケーションの状態の版番号のセッター
+     *
+     * @param stateVersion
      */
-    public void checkIfFailed() {
-        LocalDateTime failureTime = lastUpdateTime.plus(config.failureTimeout);
-        LocalDateTime now = LocalDateTime.now();
-        failed = now.isAfter(failureTime);
+    public void setStateVersion(long stateVersion) {
+        this.stateVersion = stateVersion;
     }
 
     /**
-     * 故障したノードのデータを削除するべきか判定するメソッド
+     * ゴシップメッセージに載せるノード情報の要約を作成するメソッド
+     * 送信元は自身を生存しているとして載せる．
      *
      * @return
      */
-    public boolean shouldCleanup() {
-        if (failed) {
-            Duration cleanupTimeout = config.failureTimeout.plus(config.cleanupTimeout);
-            LocalDateTime cleanupTime = lastUpdateTime.plus(cleanupTimeout);
-            LocalDateTime now = LocalDateTime.now();
-            return now.isAfter(cleanupTime);
-        } else {
-            return false;
-        }
+    public MemberDigest toDigest() {
+        return new MemberDigest(address, heartbeatSequenceNumber, incarnation, NodeState.ALIVE, stateVersion);
     }
 
     /**
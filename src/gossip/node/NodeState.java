@@ -0,0 +1,24 @@
+package gossip.node;
+
+/**
+ * ノードの状態を表す列挙型
+ */
+public enum NodeState {
+    ALIVE, // 生存している
+    FAILED, // 故障している
+    SUSPECT;// 故障を疑われている（メッセージ上の番号を変えないよう末尾に追加する）
+
+    /**
+     * メッセージ上の番号から状態を取得するメソッド
+     *
+     * @param code
+     * @return
+     */
+    public static NodeState fromCode(int code) {
+        NodeState[] states = values();
+        if (code < 0 || code >= states.length) {
+            throw new IllegalArgumentException("Unknown node state: " + code);
+        }
+        return states[code];
+    }
+}
@@ -0,0 +1,160 @@
+package gossip.sampler;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * ゴシップを送信する相手を選ぶクラス
+ * 生存しているノードの識別番号を配列に保持し，参加・故障・復活・削除のたびに更新する．
+ * 各識別番号の配列上の位置も保持するため，追加と削除はO(1)で行え，
+ * 送信相手の選択も配列を走査せずにO(fanout)で行える．
+ *
+ * ROUND_ROBINの場合，未選択の領域から無作為に選んだノードを先頭側の選択済みの領域に移し，
+ * 全ノードを選び終えると次の周回を始める．周回の途中で追加したノードも無作為な順で選ばれる．
+ */
+public class PeerSampler {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final PeerSelectionMode mode;
+    private int[] peers = new int[INITIAL_CAPACITY];// 生存しているノードの識別番号
+    private int[] positions = new int[INITIAL_CAPACITY];// 識別番号ごとのpeers上の位置．含まない場合は-1
+    private int size = 0;
+    private int cursor = 0;// ROUND_ROBINで次に選ぶ位置．これより前は今の周回で選択済み
+
+    public PeerSampler(PeerSelectionMode mode) {
+        this.mode = mode;
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * 送信相手の候補にノードを追加するメソッド
+     * すでに含まれている場合は何もしない．
+     *
+     * @param id
+     */
+    public synchronized void add(int id) {
+        if (id >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(id + 1, oldLength * 2));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+        if (positions[id] >= 0) {
+            return;
+        }
+        if (size == peers.length) {
+            peers = Arrays.copyOf(peers, size * 2);
+        }
+        // 末尾は未選択の領域のため，ROUND_ROBINでも今の周回で選ばれる
+        peers[size] = id;
+        positions[id] = size;
+        size++;
+    }
+
+    /**
+     * 送信相手の候補からノードを除くメソッド
+     * 含まれていない場合は何もしない．
+     *
+     * @param id
+     */
+    public synchronized void remove(int id) {
+        if (id >= positions.length || positions[id] < 0) {
+            return;
+        }
+        int position = positions[id];
+        // 選択済みの領域から除く場合は，未選択のノードが選択済みとして扱われないように
+        // 選択済みの領域の末尾を空いた位置に移してから詰める
+        if (position < cursor) {
+            cursor--;
+            move(cursor, position);
+            position = cursor;
+        }
+        size--;
+        if (position != size) {
+            move(size, position);
+        }
+        positions[id] = -1;
+    }
+
+    /**
+     * 送信相手の候補にノードが含まれているか判定するメソッド
+     *
+     * @param id
+     * @return
+     */
+    public synchronized boolean contains(int id) {
+        return id < positions.length && positions[id] >= 0;
+    }
+
+    /**
+     * 送信相手の候補の数を返すメソッド
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 重複のない送信相手を最大count個選び，destinationに格納するメソッド
+     * 配列を生成せず，countに比例する時間で選ぶ．
+     *
+     * @param destination
+     * @param count
+     * @param random
+     * @return 格納した数
+     */
+    public synchronized int select(int[] destination, int count, Random random) {
+        count = Math.min(Math.min(count, size), destination.length);
+        if (mode == PeerSelectionMode.ROUND_ROBIN) {
+            return selectRoundRobin(destination, count, random);
+        }
+        // 部分的なシャッフルにより，先頭のcount個を無作為に選ぶ
+        for (int i = 0; i < count; i++) {
+            swap(i, i + random.nextInt(size - i));
+            destination[i] = peers[i];
+        }
+        return count;
+    }
+
+    private int selectRoundRobin(int[] destination, int count, Random random) {
+        int selected = 0;
+        while (selected < count) {
+            if (cursor == size) {
+                // 全ノードを選び終えたため，次の周回を始める
+                cursor = 0;
+            }
+            // 未選択の領域を1つずつシャッフルしながら選ぶ
+            swap(cursor, cursor + random.nextInt(size - cursor));
+            int peer = peers[cursor++];
+            // 周回の境目では前の周回で選んだノードと重複する可能性がある
+            if (!contains(destination, selected, peer)) {
+                destination[selected++] = peer;
+            }
+        }
+        return selected;
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void move(int from, int to) {
+        int id = peers[from];
+        peers[to] = id;
+        positions[id] = to;
+    }
+
+    private void swap(int i, int j) {
+        int a = peers[i];
+        int b = peers[j];
+        peers[i] = b;
+        peers[j] = a;
+        positions[b] = i;
+        positions[a] = j;
+    }
+}
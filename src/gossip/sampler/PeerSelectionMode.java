@@ -0,0 +1,9 @@
+package gossip.sampler;
+
+/**
+ * ゴシップを送信する相手の選び方
+ */
+public enum PeerSelectionMode {
+    RANDOM, // 周期ごとに生存しているノードから無作為に選ぶ
+    ROUND_ROBIN;// シャッフルした順に選び，N/fanout周期以内に全ノードへ送信する
+}
@@ -0,0 +1,112 @@
+package gossip.sampler;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 同じゾーンのノードを優先して送信相手を選ぶクラス
+ * 全ての候補に加えて，同じゾーンの候補と他のゾーン（ゾーンが不明なノードを含む）の候補を別々に保持する．
+ * 通常は同じゾーンの候補から選び，crossZoneProbabilityの確率で1つを他のゾーンの候補から選ぶ．
+ * 他のゾーンへの送信がない周期がceil(1 / crossZoneProbability)回続いた場合は必ず1つを他のゾーンから選ぶため，
+ * 他のゾーンへの伝播が途切れることはない．
+ * どちらかのゾーンの候補がない場合は，全ての候補から無作為に選ぶ．
+ */
+public class ZonePeerSampler extends PeerSampler {
+    private final PeerSampler localPeers;// 同じゾーンの候補
+    private final PeerSampler remotePeers;// 他のゾーンやゾーンが不明な候補
+    private final double crossZoneProbability;// 他のゾーンに送信する周期の割合
+    private final int maxLocalRounds;// 他のゾーンに送信せずに続けられる周期の数
+    private boolean[] local = new boolean[16];// 識別番号ごとに同じゾーンか
+    private int[] scratch = new int[16];// 他のゾーンの候補を選ぶ際の作業領域
+    private int localRounds = 0;// 他のゾーンに送信していない周期の数
+
+    /**
+     * @param mode
+     * @param crossZoneProbability 0より大きく1以下
+     */
+    public ZonePeerSampler(PeerSelectionMode mode, double crossZoneProbability) {
+        super(mode);
+        if (!(crossZoneProbability > 0 && crossZoneProbability <= 1)) {
+            throw new IllegalArgumentException("Invalid crossZoneProbability: " + crossZoneProbability);
+        }
+        this.localPeers = new PeerSampler(mode);
+        this.remotePeers = new PeerSampler(mode);
+        this.crossZoneProbability = crossZoneProbability;
+        this.maxLocalRounds = (int) Math.ceil(1 / crossZoneProbability);
+    }
+
+    @Override
+    public synchronized void add(int id) {
+        super.add(id);
+        if (isLocal(id)) {
+            localPeers.add(id);
+        } else {
+            remotePeers.add(id);
+        }
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        super.remove(id);
+        localPeers.remove(id);
+        remotePeers.remove(id);
+    }
+
+    /**
+     * ノードが同じゾーンかを設定するメソッド
+     * 候補に含まれている場合は，同じゾーンの候補と他のゾーンの候補の間で移す．
+     * 識別番号は再利用されるため，候補に加える際に毎回設定し直す．
+     *
+     * @param id
+     * @param isLocal
+     */
+    public synchronized void setLocal(int id, boolean isLocal) {
+        if (id >= local.length) {
+            local = Arrays.copyOf(local, Math.max(id + 1, local.length * 2));
+        }
+        local[id] = isLocal;
+        if (!contains(id)) {
+            return;
+        }
+        if (isLocal) {
+            remotePeers.remove(id);
+            localPeers.add(id);
+        } else {
+            localPeers.remove(id);
+            remotePeers.add(id);
+        }
+    }
+
+    /**
+     * 同じゾーンの候補の数を返すメソッド
+     *
+     * @return
+     */
+    public synchronized int localSize() {
+        return localPeers.size();
+    }
+
+    @Override
+    public synchronized int select(int[] destination, int count, Random random) {
+        count = Math.min(Math.min(count, size()), destination.length);
+        if (count == 0 || localPeers.size() == 0 || remotePeers.size() == 0) {
+            return super.select(destination, count, random);
+        }
+        boolean crossZone = localRounds + 1 >= maxLocalRounds || random.nextDouble() < crossZoneProbability;
+        int remoteCount = crossZone ? 1 : 0;
+        int selected = localPeers.select(destination, count - remoteCount, random);
+        // 同じゾーンの候補が足りない分も他のゾーンから選ぶ
+        remoteCount = count - selected;
+        if (scratch.length < remoteCount) {
+            scratch = new int[remoteCount];
+        }
+        int remote = remotePeers.select(scratch, remoteCount, random);
+        System.arraycopy(scratch, 0, destination, selected, remote);
+        localRounds = remote > 0 ? 0 : localRounds + 1;
+        return selected + remote;
+    }
+
+    private boolean isLocal(int id) {
+        return id < local.length && local[id];
+    }
+}
@@ -0,0 +1,77 @@
+package gossip.service;
+
+import gossip.config.GossipConfig;
+
+import java.time.Duration;
+
+/**
+ * adaptiveGossipで送信相手の数と送信周期を決めるクラス
+ * 送信相手の数は生存しているノード数の自然対数とし，minFanoutからmaxFanoutの範囲に収める．
+ * 変化のない間の送信周期は，1ノードが単位時間に送信するメッセージの数が
+ * peersToUpdatePerIntervalとupdateFrequencyの固定の設定を超えないように，送信相手の数に比例して延ばす．
+ * メンバーシップやアプリケーションの状態が変化した周期の後は送信周期をminUpdateIntervalに縮め，
+ * 変化のない周期が続くたびに2倍にして元の周期に戻す．
+ * 変化を受け取ったノードも同様に周期を縮めるため，変化を伝えている間のみ送信が増える．
+ * 送信処理のスレッドからのみ呼び出すため，同期しない．
+ */
+class AdaptiveSchedule {
+    private final GossipConfig config;
+    private long lastChanges = -1;// 前回の周期で確認した変化の回数
+    private long intervalNanos;// 現在の送信周期
+
+    AdaptiveSchedule(GossipConfig config) {
+        this.config = config;
+        this.intervalNanos = config.minUpdateInterval.toNanos();
+    }
+
+    /**
+     * 生存しているノード数に応じた送信相手の数を返すメソッド
+     *
+     * @param peers 自身を除く送信相手の候補の数
+     * @return
+     */
+    int fanout(int peers) {
+        int fanout = (int) Math.ceil(Math.log(peers + 1));
+        return Math.max(config.minFanout, Math.min(fanout, config.maxFanout));
+    }
+
+    /**
+     * 次の送信までの周期を決めるメソッド
+     *
+     * @param fanout  今の周期の送信相手の数
+     * @param changes これまでのメンバーシップとアプリケーションの状態の変化の回数
+     * @return
+     */
+    Duration nextInterval(int fanout, long changes) {
+        long quietNanos = quietIntervalNanos(fanout);
+        if (changes != lastChanges) {
+            lastChanges = changes;
+            intervalNanos = config.minUpdateInterval.toNanos();
+        } else {
+            intervalNanos = Math.min(intervalNanos * 2, quietNanos);
+        }
+        intervalNanos = Math.min(intervalNanos, quietNanos);
+        return Duration.ofNanos(intervalNanos);
+    }
+
+    /**
+     * 現在の送信周期のゲッター
+     *
+     * @return
+     */
+    long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * 変化のない間の送信周期を返すメソッド
+     * 送信相手が固定の設定以下の場合はupdateFrequencyのままとし，固定の設定より送信を増やさない．
+     */
+    private long quietIntervalNanos(int fanout) {
+        long nanos = config.updateFrequency.toNanos();
+        if (fanout > config.peersToUpdatePerInterval) {
+            nanos = nanos * fanout / Math.max(1, config.peersToUpdatePerInterval);
+        }
+        return Math.max(config.minUpdateInterval.toNanos(), Math.min(nanos, config.maxUpdateInterval.toNanos()));
+    }
+}
@@ -0,0 +1,68 @@
+package gossip.service;
+
+import gossip.clock.Clock;
+import gossip.clock.SystemClock;
+import gossip.config.GossipConfig;
+import gossip.executor.GossipExecutor;
+import gossip.transport.Transport;
+
+import java.util.Random;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * システムの時刻，GossipConfigで指定されたスレッドの方式と通信方式を使用する実環境
+ */
+public class DefaultGossipEnvironment implements GossipEnvironment {
+    private static final long DISPATCHER_KEEP_ALIVE_SECONDS = 30;// イベントの配送がない場合に配送スレッドを終了するまでの秒数
+
+    private final GossipExecutor executor;
+
+    public DefaultGossipEnvironment(GossipConfig config) {
+        this.executor = config.executionMode.getExecutor();
+    }
+
+    @Override
+    public Clock getClock() {
+        return SystemClock.INSTANCE;
+    }
+
+    @Override
+    public GossipExecutor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public Transport createTransport(InetSocketAddress address, GossipConfig config) {
+        return config.transportMode.createTransport(address.getPort(), executor);
+    }
+
+    /**
+     * 1つのデーモンスレッドで配送するExecutorを作成するメソッド
+     * スレッドは配送がない間は終了するため，リスナーを登録しないノードではスレッドを生成しない．
+     *
+     * @param address
+     * @return
+     */
+    @Override
+    public Executor createEventDispatcher(InetSocketAddress address) {
+        String name = "gossip-events-" + address.getPort();
+        ThreadPoolExecutor dispatcher = new ThreadPoolExecutor(1, 1, DISPATCHER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        dispatcher.allowCoreThreadTimeOut(true);
+        return dispatcher;
+    }
+
+    @Override
+    public Random getRandom() {
+        return ThreadLocalRandom.current();
+    }
+}
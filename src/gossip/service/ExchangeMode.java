@@ -0,0 +1,9 @@
+package gossip.service;
+
+/**
+ * 周期ごとのゴシップの交換方式
+ */
+public enum ExchangeMode {
+    PUSH, // 自身の情報と保持しているノード情報の一部を送信するのみ
+    PUSH_PULL;// シーケンス番号の一覧を送り，相手からは新しいノード情報のみを受け取る
+}
@@ -0,0 +1,57 @@
+package gossip.service;
+
+import gossip.clock.Clock;
+import gossip.config.GossipConfig;
+import gossip.executor.GossipExecutor;
+import gossip.transport.Transport;
+
+import java.util.Random;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * GossipServiceが動作する環境を表すインターフェース
+ * 時刻，スレッド，通信手段，乱数を提供し，実環境とシミュレーションで差し替えられるようにする．
+ */
+public interface GossipEnvironment {
+    /**
+     * 現在時刻を提供するClockを返すメソッド
+     *
+     * @return
+     */
+    Clock getClock();
+
+    /**
+     * 周期処理や送信処理を実行するGossipExecutorを返すメソッド
+     *
+     * @return
+     */
+    GossipExecutor getExecutor();
+
+    /**
+     * 引数のアドレスで通信するTransportを作成するメソッド
+     *
+     * @param address
+     * @param config
+     * @return
+     */
+    Transport createTransport(InetSocketAddress address, GossipConfig config);
+
+    /**
+     * メンバーシップイベントをリスナーに配送するExecutorを作成するメソッド
+     * リスナーの処理が遅くてもゴシップの処理を止めないよう，getExecutor()とは別に各ノードで1つ作成する．
+     * 渡された処理は1つずつ順に実行しなければならない．
+     *
+     * @param address
+     * @return
+     */
+    Executor createEventDispatcher(InetSocketAddress address);
+
+    /**
+     * 送信先の選択などに使用する乱数生成器を返すメソッド
+     * 呼び出したスレッドで使用するものを返すため，他のスレッドに渡してはならない．
+     *
+     * @return
+     */
+    Random getRandom();
+}
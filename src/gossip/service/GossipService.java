@@ -1,34 +1,111 @@
 package gossip.service;
 
+import gossip.codec.GossipMessage;
+import gossip.codec.MessageCodec;
+import gossip.codec.MessageType;
 import gossip.config.GossipConfig;
+import gossip.detector.HashedTimerWheel;
+import gossip.event.MembershipEvent;
+import gossip.event.MembershipEventBus;
+import gossip.event.MembershipEventType;
+import gossip.event.MembershipListener;
+import gossip.executor.GossipExecutor;
+import gossip.log.AsyncLogWriter;
+import gossip.metrics.GossipMetrics;
+import gossip.metrics.MetricsMBean;
+import gossip.node.MemberDigest;
+import gossip.node.MembershipCheckpoint;
+import gossip.node.MembershipSnapshot;
+import gossip.node.MembershipTable;
 import gossip.node.Node;
+import gossip.node.NodeState;
+import gossip.sampler.PeerSampler;
+import gossip.sampler.PeerSelectionMode;
+import gossip.sampler.ZonePeerSampler;
+import gossip.state.AppStateDelta;
+import gossip.state.AppStateEntry;
+import gossip.state.AppStateStore;
+import gossip.transport.Transport;
 
+import java.util.Map;
 import java.util.List;
-import java.io.FileWriter;
+import java.util.BitSet;
+import java.util.Random;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.io.BufferedWriter;
 import java.net.InetSocketAddress;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * ゴシッププロトコルサービスを行うクラス
  * 各ノードでこの
  */
 public class GossipService {
+    public static final String ZONE_KEY = "gossip.zone";// 自身のゾーンを公開するアプリケーションの状態のキー
     public final InetSocketAddress inetSocketAddress;// 自身のノードのアドレス
     private SocketService socketService;
-    private Node self = null;// 自身のノードを表すNodeオブジェクト
-    // ネットワーク内の全ノードオブジェクトを保持する
-    private ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>();
-    private boolean stopped = false;
+    private final int self;// 自身のノードの識別番号
+    // ネットワーク内の全ノードの情報を保持する
+    private final MembershipTable members;
+    // 最後に作成したメンバーシップのスナップショット．表の版番号が変わった後の最初の参照で作り直す
+    private volatile MembershipSnapshot snapshot;
+    // スナップショットの作り直しと，新しい版を待つスレッドへの通知に使用するロック
+    private final Object snapshotLock = new Object();
+    private volatile int snapshotWaiters = 0;// awaitMembershipSnapshot()で待っているスレッドの数
+    // 生存しているノードからゴシップの送信相手を選ぶインスタンス
+    private final PeerSampler peerSampler;
+    private final ZonePeerSampler zoneSampler;// zoneを指定した場合のpeerSampler．指定しない場合はnull
+    // 選んだ送信相手の識別番号を格納する配列．送信処理のみが使用する
+    private final int[] peersToUpdate;
+    // 生存しているノードからSWIM方式の死活確認の相手を選ぶインスタンス．probingが無効な場合はnull
+    private final PeerSampler probeSampler;
+    private final int[] probeTarget = new int[1];// 選んだ死活確認の相手を格納する配列．死活確認の周期処理のみが使用する
+    private final int[] indirectProbeCandidates;// 間接の死活確認の依頼先の候補を格納する配列．自身のロックで保護する
+    // 各ノードの故障判定と削除の期限を，識別番号で管理するタイマー
+    private final HashedTimerWheel<Integer> failureTimers;
+    private volatile boolean stopped = false;
+    // 時刻，スレッド，通信手段，乱数を提供する動作環境
+    private final GossipEnvironment environment;
+    // 周期処理や送信処理を実行するスレッドを管理するインスタンス
+    private final GossipExecutor executor;
+    // 停止時にキャンセルする実行中の処理
+    private final List<Future<?>> tasks = new CopyOnWriteArrayList<>();
+    // メンバーシップを保存するインスタンス．checkpointDirectoryが指定されていない場合はnull
+    private final MembershipCheckpoint checkpoint;
+    // 参加時に全ノードの情報をTCPで取得するインスタンス．joinSyncが無効な場合はnull
+    private final JoinSync joinSync;
+    // 参加時に全ノードの情報を取得するターゲットノード．最初のノードの場合はnull
+    private InetSocketAddress joinTarget = null;
+    // 宛先ごとに送信をまとめるインスタンス．batchingが無効な場合はnull
+    private final OutboundBatcher batcher;
+    // 各ノードが公開するアプリケーションの状態を保持するインスタンス
+    private final AppStateStore appState;
+    // SWIM方式の死活確認を行うインスタンス．probingが無効でもPINGには応答する
+    private final SwimProber prober;
+    // adaptiveGossipで送信相手の数と送信周期を決める．無効な場合はnull
+    private final AdaptiveSchedule adaptiveSchedule;
+    private volatile Future<?> adaptiveSender;// adaptiveGossipで次の送信を予約した処理
+    // 送受信やメンバーシップの変化を計測するメトリクス
+    private final GossipMetrics metrics = new GossipMetrics();
+    // JMXに登録したMBean．登録していない場合はnull
+    private MetricsMBean metricsMBean;
     // ゴシッププロトコルの設定情報を保持するオブジェクト
     private GossipConfig gossipConfig = null;
-    // イベント発生時のコールバック処理を行うインスタンス
-    private GossipUpdater onNewMember = null;
-    private GossipUpdater onFailedMember = null;
-    private GossipUpdater onRemovedMember = null;
-    private GossipUpdater onRevivedMember = null;
+    // メンバーシップの変化をリスナーに非同期に配送するイベントバス
+    private final MembershipEventBus eventBus;
+    // setOn〜Handlerで設定されたコールバック．イベントバスのスレッドから呼び出す
+    private volatile GossipUpdater onNewMember = null;
+    private volatile GossipUpdater onFailedMember = null;
+    private volatile GossipUpdater onRemovedMember = null;
+    private volatile GossipUpdater onRevivedMember = null;
+    private volatile GossipUpdater onSuspectMember = null;
+    private boolean handlersSubscribed = false;// コールバックを呼び出すリスナーを登録したか
     private String mainCSV;
     private String nodeCSV;
 
@@ -39,112 +116,412 @@ public class GossipService {
      * @param gossipConfig
      */
     public GossipService(InetSocketAddress inetSocketAddress, GossipConfig gossipConfig, String csvFile) {
+        this(inetSocketAddress, gossipConfig, csvFile, new DefaultGossipEnvironment(gossipConfig));
+    }
+
+    /**
+     * 最初以外のノードのコンストラクタ
+     *
+     * @param listeningAddress
+     * @param targetAddress
+     * @param gossipConfig
+     */
+    public GossipService(InetSocketAddress listeningAddress,
+            InetSocketAddress targetAddress,
+            GossipConfig gossipConfig,
+            String csvFile) {
+        this(listeningAddress, targetAddress, gossipConfig, csvFile, new DefaultGossipEnvironment(gossipConfig));
+    }
+
+    /**
+     * 動作環境を指定する最初のノードのコンストラクタ
+     *
+     * @param inetSocketAddress
+     * @param gossipConfig
+     * @param csvFile
+     * @param environment
+     */
+    public GossipService(InetSocketAddress inetSocketAddress, GossipConfig gossipConfig, String csvFile,
+            GossipEnvironment environment) {
+        MessageCodec codec = gossipConfig.wireFormat.createCodec(gossipConfig.compactEncoding,
+                gossipConfig.compressionThreshold, gossipConfig.maxDatagramSize);
+        // UDPで送信できない大きさや，ヘッダなどの固定部分を収められない大きさは受け付けない
+        if (gossipConfig.maxDatagramSize > Transport.MAX_DATAGRAM_SIZE
+                || gossipConfig.maxDatagramSize < codec.estimateBaseSize()) {
+            throw new IllegalArgumentException("Invalid maxDatagramSize: " + gossipConfig.maxDatagramSize);
+        }
+        if (gossipConfig.adaptiveGossip && (gossipConfig.minFanout < 1
+                || gossipConfig.maxFanout < gossipConfig.minFanout
+                || gossipConfig.minUpdateInterval.isNegative() || gossipConfig.minUpdateInterval.isZero()
+                || gossipConfig.maxUpdateInterval.compareTo(gossipConfig.minUpdateInterval) < 0)) {
+            throw new IllegalArgumentException("Invalid adaptive gossip bounds");
+        }
         this.inetSocketAddress = inetSocketAddress;
         this.gossipConfig = gossipConfig;
-        this.socketService = new SocketService(inetSocketAddress.getPort());
+        this.environment = environment;
+        this.executor = environment.getExecutor();
+        Transport transport = environment.createTransport(inetSocketAddress, gossipConfig);
+        this.socketService = new SocketService(inetSocketAddress.getPort(), transport, codec,
+                gossipConfig.logging, metrics);
+        this.batcher = gossipConfig.batching
+                ? new OutboundBatcher(socketService, gossipConfig.maxDatagramSize, metrics)
+                : null;
         this.mainCSV = csvFile;
-        // まだ登録されていなければ自身のノードを配列に追加する
-        self = new Node(inetSocketAddress, 0, gossipConfig);
-        nodes.putIfAbsent(self.getUniqueId(), self);
-        setEventHandler();
+        // 自身のノードを表に追加する
+        members = new MembershipTable(gossipConfig, environment.getClock(), metrics.heartbeatIntervalNanos);
+        self = members.add(inetSocketAddress, 0, 0);
+        snapshot = members.snapshot();
+        appState = new AppStateStore(inetSocketAddress);
+        // ゾーンは他のノードにアプリケーションの状態として伝える
+        if (gossipConfig.zone != null) {
+            zoneSampler = new ZonePeerSampler(gossipConfig.peerSelectionMode, gossipConfig.crossZoneProbability);
+            peerSampler = zoneSampler;
+            appState.put(ZONE_KEY, gossipConfig.zone);
+        } else {
+            zoneSampler = null;
+            peerSampler = new PeerSampler(gossipConfig.peerSelectionMode);
+        }
+        adaptiveSchedule = gossipConfig.adaptiveGossip ? new AdaptiveSchedule(gossipConfig) : null;
+        peersToUpdate = new int[adaptiveSchedule != null ? gossipConfig.maxFanout
+                : gossipConfig.peersToUpdatePerInterval];
+        // 全ノードを一巡してから同じノードを確認するため，各ノードは2N周期以内に確認される
+        probeSampler = gossipConfig.probing ? new PeerSampler(PeerSelectionMode.ROUND_ROBIN) : null;
+        // 確認対象のノードが選ばれた場合に除いても，indirectProbes個を選べるようにする
+        indirectProbeCandidates = new int[gossipConfig.indirectProbes + 1];
+        metrics.registerGauge("memberCount", members::size);
+        metrics.registerGauge("aliveMemberCount", () -> members.count(NodeState.ALIVE));
+        metrics.registerGauge("suspectMemberCount", () -> members.count(NodeState.SUSPECT));
+        metrics.registerGauge("failedMemberCount", () -> members.count(NodeState.FAILED));
+        metrics.registerGauge("fanout", this::currentFanout);
+        metrics.registerGauge("updateIntervalMillis", () -> adaptiveSchedule != null
+                ? TimeUnit.NANOSECONDS.toMillis(adaptiveSchedule.getIntervalNanos())
+                : gossipConfig.updateFrequency.toMillis());
+        // スロットの粒度を故障検知周期より細かくし，期限から判定までの遅れを抑える
+        failureTimers = new HashedTimerWheel<>(gossipConfig.failureDetectionFrequency.toMillis() / 4,
+                gossipConfig.failureTimeout.plus(gossipConfig.cleanupTimeout).toMillis(), members.currentMillis());
+        scheduleDetection(self, members.getNextCheckDeadline(self));
+        prober = new SwimProber(this, gossipConfig, executor);
+        eventBus = new MembershipEventBus(environment.createEventDispatcher(inetSocketAddress),
+                gossipConfig.eventQueueCapacity, gossipConfig.coalesceEvents, metrics.droppedEvents);
+        joinSync = gossipConfig.joinSync
+                ? new JoinSync(this, gossipConfig, executor, gossipConfig.wireFormat.createCodec(
+                        gossipConfig.compactEncoding, gossipConfig.compressionThreshold, Transport.MAX_DATAGRAM_SIZE),
+                        inetSocketAddress)
+                : null;
+        checkpoint = gossipConfig.checkpointDirectory != null ? openCheckpoint() : null;
+        if (checkpoint != null) {
+            restoreCheckpoint();
+        }
+        if (gossipConfig.logging) {
+            setEventHandler();
+        }
     }
 
     /**
-     * 最初以外のノードのコンストラクタ
+     * 動作環境を指定する最初以外のノードのコンストラクタ
      *
      * @param listeningAddress
      * @param targetAddress
      * @param gossipConfig
+     * @param csvFile
+     * @param environment
      */
     public GossipService(InetSocketAddress listeningAddress,
             InetSocketAddress targetAddress,
             GossipConfig gossipConfig,
-            String csvFile) {
-        this(listeningAddress, gossipConfig, csvFile);
-        // 最初に接続するターゲットノードを配列に追加する
-        Node initialTarget = new Node(targetAddress, 0, gossipConfig);
-        nodes.putIfAbsent(initialTarget.getUniqueId(), initialTarget);
+            String csvFile,
+            GossipEnvironment environment) {
+        this(listeningAddress, gossipConfig, csvFile, environment);
+        // 最初に接続するターゲットノードを表に追加する
+        joinTarget = targetAddress;
+        int initialTarget = members.add(targetAddress, 0, 0);
+        if (initialTarget != MembershipTable.NO_MEMBER) {
+            addPeer(initialTarget);
+            scheduleDetection(initialTarget, members.getNextCheckDeadline(initialTarget));
+        }
     }
 
     /**
      * ゴシッププロトコルに必要な各スレッドを起動するメソッド
      */
     public void start() {
-        nodeCSV = "log/" + inetSocketAddress.getPort() + ".csv";
-        resetCSVFile(nodeCSV);
+        startSenderTask();
+        startReceiverTask();
+        startFailureDetectionTask();
+        if (gossipConfig.jmx) {
+            InetSocketAddress address = inetSocketAddress;
+            metricsMBean = MetricsMBean.register(metrics,
+                    address.getAddress().getHostAddress() + ":" + address.getPort());
+        }
+        if (gossipConfig.probing) {
+            tasks.add(executor.scheduleWithFixedDelay(prober::probe, gossipConfig.probeInterval));
+        }
+        if (batcher != null) {
+            tasks.add(executor.scheduleWithFixedDelay(batcher::flush, gossipConfig.batchInterval));
+        }
+        if (checkpoint != null) {
+            tasks.add(executor.scheduleWithFixedDelay(this::writeCheckpoint, gossipConfig.checkpointInterval));
+        }
+        if (joinSync != null) {
+            joinSync.startServer();
+            if (joinTarget != null) {
+                joinSync.join(joinTarget);
+            }
+        }
+        if (gossipConfig.logging) {
+            nodeCSV = "log/" + inetSocketAddress.getPort() + ".csv";
+            resetCSVFile(nodeCSV);
+            printNodes(3000);
+        }
+    }
 
-        startSenderThread();
-        startReceiverThread();
-        startFailureDetectionThread();
-        printNodes(3000);
+    /**
+     * 保持しているノードの数を取得するメソッド
+     * 自身のノードも含む．
+     *
+     * @return
+     */
+    public int getMemberCount() {
+        return members.size();
     }
 
     /**
-     * 現在生存しているノードのリストを取得するメソッド
+     * 保持しているノードのシーケンス番号（ハートビート）を取得するメソッド
+     *
+     * @param address
+     * @return シーケンス番号．保持していない場合は-1
+     */
+    public long getSequenceNumber(InetSocketAddress address) {
+        synchronized (members) {
+            int id = members.idOf(address);
+            return id == MembershipTable.NO_MEMBER ? -1 : members.getHeartbeat(id);
+        }
+    }
+
+    /**
+     * 現在のメンバーシップのスナップショットを取得するメソッド
+     * 前回の参照から変化がなければ，作成済みのスナップショットをロックを取らずに返す．
+     * 変化していれば最初の参照で作り直すため，変化が続いても参照されない限り作成しない．
      *
      * @return
      */
-    public ArrayList<InetSocketAddress> getAliveMembers() {
-        int initialSize = nodes.size();
-        ArrayList<InetSocketAddress> aliveMembers = new ArrayList<>(initialSize);
+    public MembershipSnapshot getMembershipSnapshot() {
+        MembershipSnapshot current = snapshot;
+        if (current.getVersion() == members.getVersion()) {
+            return current;
+        }
+        return refreshSnapshot();
+    }
 
-        for (String key : nodes.keySet()) {
-            Node node = nodes.get(key);
-            if (!node.hasFailed()) {
-                String ipAddress = node.getAddress();
-                int port = node.getPort();
-                aliveMembers.add(new InetSocketAddress(ipAddress, port));
+    /**
+     * 指定した版番号より新しいスナップショットが作成されるまで待つメソッド
+     * 受信処理や故障検知のスレッドからは呼び出さないこと．
+     *
+     * @param version 以前に取得したスナップショットの版番号
+     * @param timeout
+     * @return 新しいスナップショット．タイムアウトした場合は現在のスナップショット
+     * @throws InterruptedException
+     */
+    public MembershipSnapshot awaitMembershipSnapshot(long version, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (snapshotLock) {
+            snapshotWaiters++;
+            try {
+                while (true) {
+                    MembershipSnapshot current = getMembershipSnapshot();
+                    long remaining = deadline - System.nanoTime();
+                    if (current.getVersion() > version || remaining <= 0) {
+                        return current;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(snapshotLock, remaining);
+                }
+            } finally {
+                snapshotWaiters--;
+            }
+        }
+    }
+
+    /**
+     * 表の現在の状態からスナップショットを作り直すメソッド
+     * 同時に呼び出されても，同じ版のスナップショットは1度だけ作成する．
+     *
+     * @return
+     */
+    private MembershipSnapshot refreshSnapshot() {
+        synchronized (snapshotLock) {
+            MembershipSnapshot current = snapshot;
+            if (current.getVersion() != members.getVersion()) {
+                current = members.snapshot();
+                snapshot = current;
+                snapshotLock.notifyAll();
             }
+            return current;
         }
+    }
 
-        return aliveMembers;
+    /**
+     * 新しい版を待っているスレッドがあれば，スナップショットを作り直して通知するメソッド
+     * メンバーシップを変化させうる処理の最後に呼び出す．
+     */
+    private void notifySnapshotWaiters() {
+        if (snapshotWaiters > 0 && snapshot.getVersion() != members.getVersion()) {
+            refreshSnapshot();
+        }
+    }
+
+    /**
+     * 現在生存しているノードのリストを取得するメソッド
+     * 故障が疑われているノードも含む．getMembershipSnapshot()の内容を複製して返す．
+     *
+     * @return
+     */
+    public ArrayList<InetSocketAddress> getAliveMembers() {
+        return new ArrayList<>(getMembershipSnapshot().getAliveMembers());
     }
 
     /**
      * 故障しているノードのリストを取得するメソッド
+     * 故障検知の処理で最後に判定した状態を返し，状態を更新しない．
      *
      * @return
      */
     public ArrayList<InetSocketAddress> getFailedMembers() {
-        ArrayList<InetSocketAddress> failedMembers = new ArrayList<>();
+        return new ArrayList<>(getMembershipSnapshot().getFailedMembers());
+    }
 
-        for (String key : nodes.keySet()) {
-            Node node = nodes.get(key);
-            node.checkIfFailed();
-            if (node.hasFailed()) {
-                String ipAddress = node.getAddress();
-                int port = node.getPort();
-                failedMembers.add(new InetSocketAddress(ipAddress, port));
+    /**
+     * 全てのノードのリストを取得するメソッド
+     *
+     * @return
+     */
+    public ArrayList<InetSocketAddress> getAllMembers() {
+        return new ArrayList<>(getMembershipSnapshot().getAllMembers());
+    }
+
+    /**
+     * 実行中の処理を停止するためのメソッド
+     */
+    public void stop() {
+        stopped = true;
+        for (Future<?> task : tasks) {
+            task.cancel(true);
+        }
+        Future<?> sender = adaptiveSender;
+        if (sender != null) {
+            sender.cancel(true);
+        }
+        tasks.clear();
+        if (joinSync != null) {
+            joinSync.close();
+        }
+        if (batcher != null) {
+            batcher.flush();
+        }
+        if (checkpoint != null) {
+            writeCheckpoint();
+            try {
+                checkpoint.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close checkpoint: " + e.getMessage());
             }
         }
-
-        return failedMembers;
+        socketService.close();
+        if (metricsMBean != null) {
+            metricsMBean.unregister();
+            metricsMBean = null;
+        }
     }
 
     /**
-     * 全てのノードのリストを取得するメソッド
+     * 送受信やメンバーシップの変化を計測するメトリクスを返すメソッド
+     * snapshot()で現在の値を取得できる．
      *
      * @return
      */
-    public ArrayList<InetSocketAddress> getAllMembers() {
-        // used to prevent resizing of ArrayList.
-        int initialSize = nodes.size();
-        ArrayList<InetSocketAddress> allMembers = new ArrayList<>(initialSize);
+    public GossipMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * メンバーシップの変化を受け取るリスナーを登録するメソッド
+     * 複数のリスナーを登録でき，受信処理や故障検知とは別のスレッドから発生順に呼び出される．
+     *
+     * @param listener
+     */
+    public void addMembershipListener(MembershipListener listener) {
+        eventBus.subscribe(listener);
+    }
 
-        for (String key : nodes.keySet()) {
-            Node node = nodes.get(key);
-            String ipAddress = node.getAddress();
-            int port = node.getPort();
-            allMembers.add(new InetSocketAddress(ipAddress, port));
+    /**
+     * リスナーの登録を解除するメソッド
+     *
+     * @param listener
+     */
+    public void removeMembershipListener(MembershipListener listener) {
+        eventBus.unsubscribe(listener);
+    }
+
+    /**
+     * 自身が公開するアプリケーションの状態のキーに値を設定するメソッド
+     * 変更は版番号とともにゴシップで広まり，各ノードでUPDATEDイベントが発行される．
+     *
+     * @param key
+     * @param value 削除する場合はnull
+     */
+    public void putAppState(String key, String value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+        // 1件の差分がメッセージの半分に収まらない値は，他のノード情報と相乗りできないため受け付けない
+        MessageCodec codec = socketService.getCodec();
+        int size = codec.estimateAppStateSize(inetSocketAddress)
+                + codec.estimateSize(new AppStateEntry(key, value, Long.MAX_VALUE));
+        if (size > (gossipConfig.maxDatagramSize - codec.estimateBaseSize()) / 2) {
+            throw new IllegalArgumentException("App state entry too large: " + key);
         }
-        return allMembers;
+        AppStateEntry entry = appState.put(key, value);
+        eventBus.publish(new MembershipEvent(MembershipEventType.UPDATED, inetSocketAddress, entry.getVersion(),
+                key, value));
     }
 
     /**
-     * スレッドを停止するためのメソッド
+     * 自身が公開するアプリケーションの状態からキーを削除するメソッド
+     *
+     * @param key
      */
-    public void stop() {
-        stopped = true;
+    public void removeAppState(String key) {
+        putAppState(key, null);
+    }
+
+    /**
+     * ノードが公開しているアプリケーションの状態のキーの値を取得するメソッド
+     *
+     * @param owner
+     * @param key
+     * @return 受け取っていない場合や削除された場合はnull
+     */
+    public String getAppState(InetSocketAddress owner, String key) {
+        return appState.get(owner, key);
+    }
+
+    /**
+     * ノードのゾーンを取得するメソッド
+     *
+     * @param address
+     * @return ゾーンを公開していない場合や受け取っていない場合はnull
+     */
+    public String getZone(InetSocketAddress address) {
+        return appState.get(address, ZONE_KEY);
+    }
+
+    /**
+     * ノードが公開しているアプリケーションの状態の全てのキーと値を取得するメソッド
+     *
+     * @param owner
+     * @return 変更できない表
+     */
+    public Map<String, String> getAppState(InetSocketAddress owner) {
+        return appState.getAll(owner);
     }
 
     /**
@@ -154,6 +531,7 @@ public class GossipService {
      */
     public void setOnNewNodeHandler(GossipUpdater onNewMember) {
         this.onNewMember = onNewMember;
+        subscribeHandlers();
     }
 
     /**
@@ -163,6 +541,7 @@ public class GossipService {
      */
     public void setOnFailedNodeHandler(GossipUpdater onFailedMember) {
         this.onFailedMember = onFailedMember;
+        subscribeHandlers();
     }
 
     /**
@@ -172,6 +551,17 @@ public class GossipService {
      */
     public void setOnRevivedNodeHandler(GossipUpdater onRevivedMember) {
         this.onRevivedMember = onRevivedMember;
+        subscribeHandlers();
+    }
+
+    /**
+     * ノードの故障が疑われた場合のコールバックを設定するメソッド
+     *
+     * @param onSuspectMember
+     */
+    public void setOnSuspectNodeHandler(GossipUpdater onSuspectMember) {
+        this.onSuspectMember = onSuspectMember;
+        subscribeHandlers();
     }
 
     /**
@@ -181,154 +571,877 @@ public class GossipService {
      */
     public void setOnRemoveNodeHandler(GossipUpdater onRemovedMember) {
         this.onRemovedMember = onRemovedMember;
+        subscribeHandlers();
     }
 
     /**
-     * メッセージを定期的に送信するためのスレッドを起動するメソッド
+     * 設定されたコールバックを呼び出すリスナーを，最初の設定時に一度だけ登録するメソッド
+     * コールバックを設定しなければ，イベントはキューに追加されない．
      */
-    private void startSenderThread() {
-        new Thread(() -> {
-            while (!stopped) {
-                sendGossipToRandomNode();
-                try {
-                    Thread.sleep(gossipConfig.updateFrequency.toMillis());
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+    private synchronized void subscribeHandlers() {
+        if (!handlersSubscribed) {
+            handlersSubscribed = true;
+            eventBus.subscribe(this::callHandler);
+        }
+    }
+
+    /**
+     * イベントの種類に対応するコールバックを呼び出すメソッド
+     *
+     * @param event
+     */
+    private void callHandler(MembershipEvent event) {
+        GossipUpdater handler;
+        switch (event.getType()) {
+            case JOINED:
+                handler = onNewMember;
+                break;
+            case SUSPECTED:
+                handler = onSuspectMember;
+                break;
+            case FAILED:
+                handler = onFailedMember;
+                break;
+            case REVIVED:
+                handler = onRevivedMember;
+                break;
+            case REMOVED:
+                handler = onRemovedMember;
+                break;
+            default:
+                handler = null;
+                break;
+        }
+        if (handler != null) {
+            handler.update(event.getAddress());
+        }
+    }
+
+    /**
+     * メッセージを定期的に送信する処理を開始するメソッド
+     */
+    private void startSenderTask() {
+        if (adaptiveSchedule != null) {
+            executor.execute(this::sendGossipAdaptively);
+            return;
+        }
+        tasks.add(executor.scheduleWithFixedDelay(this::sendGossipToRandomNode,
+                gossipConfig.updateFrequency));
+    }
+
+    /**
+     * adaptiveGossipでメッセージを送信し，次の送信を予約するメソッド
+     * 送信周期は送信相手の数と，前回の送信からメンバーシップやアプリケーションの状態が変化したかで決める．
+     */
+    private void sendGossipAdaptively() {
+        if (stopped) {
+            return;
+        }
+        Duration interval = gossipConfig.updateFrequency;
+        try {
+            sendGossipToRandomNode();
+            interval = adaptiveSchedule.nextInterval(currentFanout(), members.getVersion() + appState.getUpdateCount());
+        } finally {
+            adaptiveSender = executor.schedule(this::sendGossipAdaptively, interval);
+            // stop()と同時に予約した場合は取り消す
+            if (stopped) {
+                adaptiveSender.cancel(true);
             }
-        }).start();
+        }
     }
 
     /**
-     * 他のノードからメソッドを受信するためのスレッドを起動するメソッド
+     * 他のノードからメソッドを受信する処理を開始するメソッド
      */
-    private void startReceiverThread() {
-        new Thread(() -> {
-            while (!stopped) {
-                receivePeerMessage();
+    private void startReceiverTask() {
+        socketService.startReceiving(message -> {
+            if (!stopped) {
+                receivePeerMessage(message);
             }
-        }).start();
+        });
     }
 
     /**
-     * 各ノードの状態を確認し，故障しているノードを検出するためのスレッドを起動するメソッド
+     * 各ノードの状態を確認し，故障しているノードを検出する処理を開始するメソッド
      */
-    private void startFailureDetectionThread() {
-        new Thread(() -> {
-            while (!stopped) {
-                detectFailedNodes();
+    private void startFailureDetectionTask() {
+        tasks.add(executor.scheduleWithFixedDelay(this::detectFailedNodes,
+                gossipConfig.failureDetectionFrequency));
+    }
 
-                try {
-                    Thread.sleep(gossipConfig.failureDetectionFrequency.toMillis());
-                } catch (InterruptedException ie) {
-                    ie.printStackTrace();
-                }
+    /**
+     * ランダムなノードに対してメッセージを送信するメソッド
+     */
+    void sendGossipToRandomNode() {
+        members.incrementHeartbeat(self);
+        int count = selectPeersToUpdate();
+
+        // 自身のハートビートに加えて，保持しているノード情報の一部を相乗りさせる
+        // プッシュプル方式では，ノード情報の代わりにシーケンス番号の一覧を送り，新しい情報を返してもらう
+        GossipMessage message = gossipConfig.exchangeMode == ExchangeMode.PUSH_PULL
+                ? createSyncMessage()
+                : new GossipMessage(createSender(), collectMemberDigests());
+        for (int i = 0; i < count; i++) {
+            InetSocketAddress address = members.getAddress(peersToUpdate[i]);
+            if (address != null) {
+                sendMessage(address, message);
             }
-        }).start();
+        }
     }
 
     /**
-     * ランダムなノードに対してメッセージを送信するメソッド
+     * メッセージを送信する相手を生存しているノードから選び，peersToUpdateに格納するメソッド
+     *
+     * @return 選んだ相手の数
+     */
+    int selectPeersToUpdate() {
+        return peerSampler.select(peersToUpdate, currentFanout(), environment.getRandom());
+    }
+
+    /**
+     * ノードを送信相手の候補に加えるメソッド
+     * zoneを指定した場合は，受け取っているゾーンから同じゾーンかを設定してから加える．
+     *
+     * @param id
      */
-    private void sendGossipToRandomNode() {
-        self.incrementSequenceNumber();
-        List<String> peersToUpdate = new ArrayList<>();
-        Object[] keys = nodes.keySet().toArray();
+    private void addPeer(int id) {
+        if (zoneSampler != null) {
+            InetSocketAddress address = members.getAddress(id);
+            zoneSampler.setLocal(id, address != null && gossipConfig.zone.equals(appState.get(address, ZONE_KEY)));
+        }
+        peerSampler.add(id);
+        if (probeSampler != null) {
+            probeSampler.add(id);
+        }
+    }
 
-        if (keys.length < gossipConfig.peersToUpdatePerInterval) {
-            for (int i = 0; i < keys.length; i++) {
-                String key = (String) keys[i];
-                if (!key.equals(self.getUniqueId())) {
-                    peersToUpdate.add(key);
-                }
+    /**
+     * ノードを送信相手と死活確認の相手の候補から除くメソッド
+     *
+     * @param id
+     */
+    private void removePeer(int id) {
+        peerSampler.remove(id);
+        if (probeSampler != null) {
+            probeSampler.remove(id);
+        }
+    }
+
+    /**
+     * 1回の送信での送信相手の数を返すメソッド
+     * adaptiveGossipでは生存しているノード数に応じて変わる．
+     *
+     * @return
+     */
+    private int currentFanout() {
+        return adaptiveSchedule != null ? adaptiveSchedule.fanout(peerSampler.size()) : peersToUpdate.length;
+    }
+
+    /**
+     * メッセージの送信元として載せる自身のノードを作成するメソッド
+     *
+     * @return
+     */
+    private Node createSender() {
+        Node sender = new Node(inetSocketAddress, members.getHeartbeat(self));
+        sender.updateIncarnation(members.getIncarnation(self));
+        sender.setStateVersion(appState.getVersion(inetSocketAddress));
+        return sender;
+    }
+
+    /**
+     * ゴシップメッセージに載せるノード情報の要約を，アプリケーションの状態の版番号とともに作成するメソッド
+     *
+     * @param id
+     * @return 削除済みの場合はnull
+     */
+    private MemberDigest toDigest(int id) {
+        MemberDigest digest = members.toDigest(id);
+        if (digest == null) {
+            return null;
+        }
+        long stateVersion = appState.getVersion(digest.getSocketAddress());
+        return stateVersion == 0 ? digest : digest.withStateVersion(stateVersion);
+    }
+
+    /**
+     * 最後に追加したノード情報を返すメソッド
+     * 直前のノード情報との差分で送る形式での大きさの見積もりに使用する．
+     *
+     * @param digests
+     * @return 空の場合はnull
+     */
+    private static MemberDigest lastOf(List<MemberDigest> digests) {
+        return digests.isEmpty() ? null : digests.get(digests.size() - 1);
+    }
+
+    /**
+     * 識別番号の範囲を走査する際の歩幅をランダムに選ぶメソッド
+     * limitと互いに素な歩幅で進めると，配列を生成せずに全ての識別番号を1度ずつ異なる順で走査できる．
+     *
+     * @param limit
+     * @return
+     */
+    private int randomStride(int limit) {
+        if (limit <= 2) {
+            return 1;
+        }
+        Random random = environment.getRandom();
+        while (true) {
+            int stride = 1 + random.nextInt(limit - 1);
+            if (gcd(stride, limit) == 1) {
+                return stride;
             }
-        } else {
-            for (int i = 0; i < gossipConfig.peersToUpdatePerInterval; i++) {
-                boolean newTargetFound = false;
-                while (!newTargetFound) {
-                    String targetKey = (String) keys[getRandomIndex(nodes.size())];
-                    if (!targetKey.equals(self.getUniqueId())) {
-                        newTargetFound = true;
-                        peersToUpdate.add(targetKey);
-                    }
-                }
+        }
+    }
+
+    private static int nextId(int id, int stride, int limit) {
+        int next = id + stride;
+        return next < limit ? next : next - limit;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * ゴシップメッセージに相乗りさせるノード情報を選ぶメソッド
+     * 識別番号の範囲をランダムな位置と歩幅で走査し，maxDatagramSizeに収まるまで追加する．
+     * 故障が疑われているノードは反論の機会を早く与えるため，先に追加する．
+     *
+     * @return
+     */
+    private List<MemberDigest> collectMemberDigests() {
+        MessageCodec codec = socketService.getCodec();
+        int budget = gossipConfig.maxDatagramSize - codec.estimateBaseSize();
+        List<MemberDigest> digests = new ArrayList<>();
+
+        // 走査中に疑いが晴れたノードは，疑いのないノードとして後で追加する
+        for (int i = 0; i < members.suspectCount(); i++) {
+            MemberDigest digest = toDigest(members.suspectAt(i));
+            if (digest == null || digest.getState() != NodeState.SUSPECT) {
+                continue;
             }
+            int size = codec.estimateSize(MessageType.GOSSIP, lastOf(digests), digest);
+            if (size > budget) {
+                return digests;
+            }
+            budget -= size;
+            digests.add(digest);
         }
 
-        for (String targetAddress : peersToUpdate) {
-            Node node = nodes.get(targetAddress);
-            new Thread(() -> socketService.sendGossip(node, self)).start();
+        int limit = members.idLimit();
+        int start = limit > 0 ? environment.getRandom().nextInt(limit) : 0;
+        int stride = randomStride(limit);
+        for (int i = 0, candidate = start; i < limit; i++, candidate = nextId(candidate, stride, limit)) {
+            if (candidate == self) {
+                continue;
+            }
+            MemberDigest digest = toDigest(candidate);
+            if (digest == null || digest.getState() == NodeState.SUSPECT) {
+                continue;
+            }
+            int size = codec.estimateSize(MessageType.GOSSIP, lastOf(digests), digest);
+            if (size > budget) {
+                break;
+            }
+            budget -= size;
+            digests.add(digest);
         }
+        return digests;
     }
 
     /**
-     * ランダムなインデックスを生成するメソッド
+     * プッシュプル方式で送信するSYNCメッセージを作成するメソッド
+     * 故障していないノードのシーケンス番号を識別番号の範囲をランダムな位置と歩幅で走査した順に，maxDatagramSizeに収まるまで載せる．
+     * 全て載せられた場合は，受信側が知っていて自身が知らないノードも返してもらえるようにする．
      *
-     * @param size
      * @return
      */
-    private int getRandomIndex(int size) {
-        int randomIndex = (int) (Math.random() * size);
-        return randomIndex;
+    private GossipMessage createSyncMessage() {
+        MessageCodec codec = socketService.getCodec();
+        int budget = gossipConfig.maxDatagramSize - codec.estimateBaseSize();
+        List<MemberDigest> digests = new ArrayList<>();
+        boolean complete = true;
+
+        int limit = members.idLimit();
+        int start = limit > 0 ? environment.getRandom().nextInt(limit) : 0;
+        int stride = randomStride(limit);
+        for (int i = 0, candidate = start; i < limit; i++, candidate = nextId(candidate, stride, limit)) {
+            if (candidate == self) {
+                continue;
+            }
+            MemberDigest digest = toDigest(candidate);
+            if (digest == null || digest.getState() == NodeState.FAILED) {
+                continue;
+            }
+            int size = codec.estimateSize(MessageType.SYNC, lastOf(digests), digest);
+            if (size > budget) {
+                complete = false;
+                break;
+            }
+            budget -= size;
+            digests.add(digest);
+        }
+        return new GossipMessage(MessageType.SYNC, createSender(), digests, 0, null, complete);
+    }
+
+    /**
+     * 参加時に全ノードの情報を要求するメッセージを作成するメソッド
+     * 自身のみを載せる．
+     *
+     * @return
+     */
+    GossipMessage createJoinRequest() {
+        return new GossipMessage(createSender(), new ArrayList<>());
+    }
+
+    /**
+     * 参加するノードに返す全ノードの情報を，Transport.MAX_DATAGRAM_SIZEごとのSYNC_REPLYメッセージに分割するメソッド
+     * 自身，要求元のノード，故障しているノードは除く．最後のメッセージはisComplete()がtrueになる．
+     *
+     * @param requester
+     * @return
+     */
+    List<GossipMessage> createFullStateChunks(InetSocketAddress requester) {
+        MessageCodec codec = socketService.getCodec();
+        int capacity = Transport.MAX_DATAGRAM_SIZE - codec.estimateBaseSize();
+        List<GossipMessage> chunks = new ArrayList<>();
+        List<MemberDigest> digests = new ArrayList<>();
+        int budget = capacity;
+        for (int id : members.memberIds()) {
+            if (id == self) {
+                continue;
+            }
+            MemberDigest digest = toDigest(id);
+            if (digest == null || digest.getState() == NodeState.FAILED
+                    || digest.getSocketAddress().equals(requester)) {
+                continue;
+            }
+            int size = codec.estimateSize(MessageType.SYNC_REPLY, lastOf(digests), digest);
+            if (size > budget) {
+                chunks.add(new GossipMessage(MessageType.SYNC_REPLY, createSender(), digests, 0, null, false));
+                digests = new ArrayList<>();
+                budget = capacity;
+                size = codec.estimateSize(MessageType.SYNC_REPLY, null, digest);
+            }
+            budget -= size;
+            digests.add(digest);
+        }
+        chunks.add(new GossipMessage(MessageType.SYNC_REPLY, createSender(), digests, 0, null, true));
+        return chunks;
+    }
+
+    /**
+     * SYNCメッセージに応答するメソッド
+     * 送信元より新しいシーケンス番号を持つノード情報と，故障が疑われているノード情報を返す．
+     * 送信元が全ノードを載せていた場合は，送信元が知らないノード情報も返す．
+     * 受信したシーケンス番号は先に統合しているため，送信元の方が新しいノード情報は返さない．
+     * アプリケーションの状態は，送信元の版番号より新しいキーを優先して返す．
+     *
+     * @param sync
+     */
+    private void replyToSync(GossipMessage sync) {
+        MessageCodec codec = socketService.getCodec();
+        int budget = gossipConfig.maxDatagramSize - codec.estimateBaseSize();
+        List<AppStateDelta> deltas = new ArrayList<>();
+        budget = collectAppStateDeltas(sync.getMembers(), deltas, budget);
+        List<MemberDigest> digests = new ArrayList<>();
+        InetSocketAddress requester = sync.getSender().getSocketAddress();
+        BitSet listed = new BitSet();// 送信元が載せていたノード
+        listed.set(self);
+        int requesterId = members.idOf(requester);
+        if (requesterId != MembershipTable.NO_MEMBER) {
+            listed.set(requesterId);
+        }
+
+        for (MemberDigest member : sync.getMembers()) {
+            int id = members.idOf(member.getSocketAddress());
+            if (id == MembershipTable.NO_MEMBER || listed.get(id)) {
+                continue;
+            }
+            listed.set(id);
+            MemberDigest digest = toDigest(id);
+            if (digest == null || (digest.getSequenceNumber() <= member.getSequenceNumber()
+                    && digest.getState() != NodeState.SUSPECT)) {
+                continue;
+            }
+            int size = codec.estimateSize(MessageType.SYNC_REPLY, lastOf(digests), digest);
+            if (size > budget) {
+                break;
+            }
+            budget -= size;
+            digests.add(digest);
+        }
+
+        for (int id : members.memberIds()) {
+            if (listed.get(id)) {
+                continue;
+            }
+            MemberDigest digest = toDigest(id);
+            if (digest == null || digest.getState() == NodeState.FAILED
+                    || (!sync.isComplete() && digest.getState() != NodeState.SUSPECT)) {
+                continue;
+            }
+            int size = codec.estimateSize(MessageType.SYNC_REPLY, lastOf(digests), digest);
+            if (size > budget) {
+                break;
+            }
+            budget -= size;
+            digests.add(digest);
+        }
+        sendMessage(requester, new GossipMessage(MessageType.SYNC_REPLY, createSender(), digests, 0, null, false,
+                deltas));
+    }
+
+    /**
+     * 要求元が載せた版番号より新しいアプリケーションの状態のキーを，budgetに収まるまでdeltasに追加するメソッド
+     * 各ノードのキーは版番号の小さい順に追加するため，途中で打ち切っても要求元は次の要求で続きを受け取れる．
+     *
+     * @param requested 要求元が保持している版番号を載せたノード情報
+     * @param deltas
+     * @param budget
+     * @return 残りのバイト数
+     */
+    private int collectAppStateDeltas(List<MemberDigest> requested, List<AppStateDelta> deltas, int budget) {
+        MessageCodec codec = socketService.getCodec();
+        for (MemberDigest member : requested) {
+            InetSocketAddress owner = member.getSocketAddress();
+            if (appState.getVersion(owner) <= member.getStateVersion()) {
+                continue;
+            }
+            int size = codec.estimateAppStateSize(owner);
+            List<AppStateEntry> entries = new ArrayList<>();
+            for (AppStateEntry entry : appState.entriesSince(owner, member.getStateVersion())) {
+                int entrySize = codec.estimateSize(entry);
+                if (size + entrySize > budget) {
+                    break;
+                }
+                size += entrySize;
+                entries.add(entry);
+            }
+            if (entries.isEmpty()) {
+                break;
+            }
+            budget -= size;
+            deltas.add(new AppStateDelta(owner, entries));
+        }
+        return budget;
     }
 
     /**
      * 他のノードから受信したメッセージを処理するメソッド
-     * 受信したノードが新規ノードであればonNewMemberコールバックを実行し、
-     * 既存ノードであればシーケンス番号を更新する．
-     */
-    private void receivePeerMessage() {
-        Node newNode = socketService.receiveGossip();// 受信したノードオブジェクト
-        Node existingMember = nodes.get(newNode.getUniqueId());
-        if (existingMember == null) {// 受信したノードの情報を保持にしていない場合
-            synchronized (nodes) {
-                newNode.setConfig(gossipConfig);
-                newNode.setLastUpdatedTime();
-                nodes.putIfAbsent(newNode.getUniqueId(), newNode);
-                // 新規ノード追加時のコールバックを実行
-                if (onNewMember != null) {
-                    onNewMember.update(newNode.getSocketAddress());
+     * 送信元ノードと相乗りしているノード情報をそれぞれ保持している情報に統合する．
+     * SYNCであれば統合した後に応答し，死活確認のメッセージであればSwimProberで処理する．
+     *
+     * @param message
+     */
+    void receivePeerMessage(GossipMessage message) {
+        // 処理時間は仮想時刻ではなく実際の経過時間で計測する
+        long startNanos = System.nanoTime();
+        Node sender = message.getSender();
+        InetSocketAddress senderAddress = sender.getSocketAddress();
+        mergeMember(senderAddress, sender.getSequenceNumber(), sender.getIncarnation(), false);
+        // 自身より新しいアプリケーションの状態の版番号が載っていたノード
+        List<MemberDigest> newerStates = new ArrayList<>();
+        if (sender.getStateVersion() > appState.getVersion(senderAddress)) {
+            newerStates.add(new MemberDigest(senderAddress, sender.getSequenceNumber(), 0, NodeState.ALIVE,
+                    sender.getStateVersion()));
+        }
+
+        for (MemberDigest member : message.getMembers()) {
+            InetSocketAddress address = member.getSocketAddress();
+            // 自身が疑われている場合は，インカーネーション番号を増やして反論する
+            if (address.equals(inetSocketAddress)) {
+                if (member.getState() == NodeState.SUSPECT) {
+                    members.refute(self, member.getIncarnation());
+                }
+                // 再起動前に公開していた状態を他のノードが持っていれば，それより新しい版で公開し直す
+                if (member.getStateVersion() > appState.getVersion(address)) {
+                    newerStates.add(member);
                 }
+                continue;
+            }
+            // 故障しているノードは，すでに保持している場合のみシーケンス番号を比較する
+            if (member.getState() == NodeState.FAILED && members.idOf(address) == MembershipTable.NO_MEMBER) {
+                continue;
             }
-        } else {// 受信したノードの情報をすでに保持にしている場合
-            // ノードのシーケンス番号更新
-            existingMember.updateSequenceNumber(newNode.getSequenceNumber());
+            mergeMember(address, member.getSequenceNumber(), member.getIncarnation(),
+                    member.getState() == NodeState.SUSPECT);
+            if (member.getStateVersion() > appState.getVersion(address)) {
+                newerStates.add(member);
+            }
+        }
+        for (AppStateDelta delta : message.getAppState()) {
+            mergeAppState(delta);
+        }
 
-            // System.out.println("Updating sequence number for node " +
-            // existingMember.getUniqueId());
+        metrics.mergeLatencyNanos.record(System.nanoTime() - startNanos);
+        if (!newerStates.isEmpty()) {
+            requestAppState(senderAddress, newerStates);
+        }
+
+        notifySnapshotWaiters();
+
+        if (message.getType() == MessageType.SYNC) {
+            replyToSync(message);
+        } else if (message.getType().isProbe()) {
+            prober.handle(message);
         }
     }
 
     /**
-     * ノードが故障したか検出し，適切なコールバックメソッドを実行するメソッド
+     * 受信したアプリケーションの状態の差分を統合し，更新したキーごとにUPDATEDイベントを発行するメソッド
+     * 保持していないノードの状態は，削除の際に破棄できないため統合しない．
+     *
+     * @param delta
+     */
+    private void mergeAppState(AppStateDelta delta) {
+        InetSocketAddress owner = delta.getOwner();
+        if (owner.equals(inetSocketAddress)) {
+            appState.merge(delta);
+            return;
+        }
+        List<AppStateEntry> updated;
+        // checkNode()が削除した後に統合しないように，ノードの確認と統合を同じロックの中で行う
+        synchronized (members) {
+            int id = members.idOf(owner);
+            if (id == MembershipTable.NO_MEMBER) {
+                return;
+            }
+            updated = appState.merge(delta);
+            for (AppStateEntry entry : updated) {
+                if (zoneSampler != null && entry.getKey().equals(ZONE_KEY)) {
+                    zoneSampler.setLocal(id, gossipConfig.zone.equals(entry.getValue()));
+                }
+            }
+        }
+        for (AppStateEntry entry : updated) {
+            eventBus.publish(new MembershipEvent(MembershipEventType.UPDATED, owner, entry.getVersion(),
+                    entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * 自身より新しいアプリケーションの状態の差分を，SYNCメッセージで送信元に要求するメソッド
+     * 同じメッセージに載っていた差分を統合した後も，載っていた版番号に追いついていないノードのみを要求する．
+     * 載せるノード情報の版番号は自身が保持している版番号で，応答のSYNC_REPLYにそれより新しいキーが載る．
+     *
+     * @param target
+     * @param newerStates 新しい版番号が載っていたノード情報
+     */
+    private void requestAppState(InetSocketAddress target, List<MemberDigest> newerStates) {
+        MessageCodec codec = socketService.getCodec();
+        int budget = gossipConfig.maxDatagramSize - codec.estimateBaseSize();
+        List<MemberDigest> requested = new ArrayList<>();
+        for (MemberDigest member : newerStates) {
+            long known = appState.getVersion(member.getSocketAddress());
+            if (member.getStateVersion() <= known) {
+                continue;
+            }
+            MemberDigest request = member.withStateVersion(known);
+            int size = codec.estimateSize(MessageType.SYNC, lastOf(requested), request);
+            if (size > budget) {
+                break;
+            }
+            budget -= size;
+            requested.add(request);
+        }
+        if (!requested.isEmpty()) {
+            sendMessage(target, new GossipMessage(MessageType.SYNC, createSender(), requested, 0, null, false));
+        }
+    }
+
+    /**
+     * 受信したノード情報を保持している情報に統合するメソッド
+     * 新規ノードであればJOINEDイベントを発行し，
+     * 既存ノードであればより大きいシーケンス番号とインカーネーション番号を採用する．
+     * 故障と判定していたノードのシーケンス番号が更新された場合はREVIVEDイベントを発行する．
+     * 識別番号は削除後に再利用されるため，検索と更新は表のロックを保持したまま行う．
+     *
+     * @param address
+     * @param sequenceNumber
+     * @param incarnation
+     * @param suspected 送信元がこのノードを疑っているかどうか
      */
-    private void detectFailedNodes() {
-        String[] keys = new String[nodes.size()];
-        nodes.keySet().toArray(keys);
-
-        for (String key : keys) {
-            Node node = nodes.get(key);
-            boolean hadFailed = node.hasFailed();
-            node.checkIfFailed();
-            // 故障情報が更新されていれば適切なコールバックを実行する
-            if (hadFailed != node.hasFailed() && node.hasFailed()) {
-                // nodes.remove(key);
-                if (onFailedMember != null) {
-                    onFailedMember.update(node.getSocketAddress());
-                } else if (onRevivedMember != null) {
-                    onRevivedMember.update(node.getSocketAddress());
+    private void mergeMember(InetSocketAddress address, long sequenceNumber, long incarnation,
+            boolean suspected) {
+        if (address.equals(inetSocketAddress)) {
+            return;
+        }
+        int id;
+        boolean added = false;
+        boolean revived = false;
+        long suspicionDeadline = -1;
+        long nextCheck = -1;
+        synchronized (members) {
+            id = members.idOf(address);
+            if (id == MembershipTable.NO_MEMBER) {// 受信したノードの情報を保持にしていない場合
+                id = members.add(address, sequenceNumber, incarnation);
+                added = true;
+                nextCheck = members.getNextCheckDeadline(id);
+            } else {// 受信したノードの情報をすでに保持にしている場合
+                boolean failed = members.hasFailed(id);
+                // ノードのシーケンス番号更新．故障と判定されていた場合は生存に戻る
+                revived = members.updateHeartbeat(id, sequenceNumber) && failed;
+                members.updateIncarnation(id, incarnation);
+                if (revived) {
+                    nextCheck = members.getNextCheckDeadline(id);
                 }
             }
+            // 他のノードが疑っていても，疑いを受けた後に新しいハートビートや
+            // 大きいインカーネーション番号を受信していれば無視する
+            if (suspected && sequenceNumber >= members.getHeartbeat(id)
+                    && incarnation >= members.getIncarnation(id)) {
+                suspicionDeadline = members.suspect(id, gossipConfig.suspicionTimeout.toNanos());
+            }
+            // 故障したノードには送信していないため，再び送信相手の候補に加える
+            // checkNode()が同じ識別番号を候補から外した後に加えないように，ロックの中で行う
+            if (added || revived) {
+                addPeer(id);
+            }
+        }
+
+        if (added) {
+            metrics.newMembers.increment();
+            scheduleDetection(id, nextCheck);
+            eventBus.publish(new MembershipEvent(MembershipEventType.JOINED, address, sequenceNumber));
+        } else if (revived) {
+            metrics.revivedMembers.increment();
+            scheduleDetection(id, nextCheck);
+            eventBus.publish(new MembershipEvent(MembershipEventType.REVIVED, address, sequenceNumber));
+        }
+        if (suspicionDeadline >= 0) {
+            onSuspected(id, address, suspicionDeadline);
+        }
+    }
+
+    /**
+     * ノードが故障したか検出し，適切なコールバックメソッドを実行するメソッド
+     * 全ノードを走査せず，タイマーホイールで期限が到来したノードのみを調べる．
+     */
+    void detectFailedNodes() {
+        failureTimers.expire(members.currentMillis(), this::checkNode);
+        notifySnapshotWaiters();
+    }
+
+    /**
+     * 期限が到来したノードの故障を判定し，次に調べる期限を返すメソッド
+     *
+     * @param id
+     * @param deadline
+     * @return
+     */
+    private long checkNode(Integer id, long deadline) {
+        // mergeMember()と同じロックの中で判定から削除までを行い，
+        // 判定の後に受信したハートビートで復活したノードを削除しないようにする
+        synchronized (members) {
+            // 期限が更新された古い登録や，削除済みのノードは無視する
+            if (!members.contains(id) || members.getDetectionDeadline(id) != deadline) {
+                return HashedTimerWheel.NO_DEADLINE;
+            }
+            InetSocketAddress address = members.getAddress(id);
+            boolean hadFailed = members.hasFailed(id);
+            boolean failed = members.checkIfFailed(id) == NodeState.FAILED;
+            // 故障したノードには送信しない．復活はmergeMember()で扱う
+            if (failed) {
+                removePeer(id);
+            }
+            // イベントもロックの中で発行し，復活や再参加のイベントより先に届ける
+            if (!hadFailed && failed) {
+                metrics.failedMembers.increment();
+                eventBus.publish(new MembershipEvent(MembershipEventType.FAILED, address, members.getHeartbeat(id)));
+            }
             // ノードの情報を削除するか判定する
-            if (node.shouldCleanup()) {
-                synchronized (nodes) {
-                    nodes.remove(key);
-                    // ノード削除時コールバックを実行
-                    if (onRemovedMember != null) {
-                        onRemovedMember.update(node.getSocketAddress());
-                    }
+            if (members.shouldCleanup(id)) {
+                long sequenceNumber = members.getHeartbeat(id);
+                removePeer(id);
+                members.remove(id);
+                appState.remove(address);
+                metrics.removedMembers.increment();
+                eventBus.publish(new MembershipEvent(MembershipEventType.REMOVED, address, sequenceNumber));
+                return HashedTimerWheel.NO_DEADLINE;
+            }
+            long next = members.getNextCheckDeadline(id);
+            members.setDetectionDeadline(id, next);
+            return next;
+        }
+    }
+
+    /**
+     * ノードが新たに疑われた際に，疑いの期限で故障を判定するように登録するメソッド
+     * suspicionTimeout以内に反論がなければ故障とみなされる．
+     *
+     * @param id
+     * @param address
+     * @param deadline
+     */
+    private void onSuspected(int id, InetSocketAddress address, long deadline) {
+        metrics.suspectedMembers.increment();
+        scheduleDetection(id, deadline);
+        eventBus.publish(new MembershipEvent(MembershipEventType.SUSPECTED, address, members.getHeartbeat(id)));
+    }
+
+    /**
+     * 死活確認に応答しなかったノードの故障を疑うメソッド
+     *
+     * @param address
+     */
+    void suspectMember(InetSocketAddress address) {
+        int id;
+        long deadline;
+        synchronized (members) {
+            id = members.idOf(address);
+            if (id == MembershipTable.NO_MEMBER || id == self) {
+                return;
+            }
+            deadline = members.suspect(id, gossipConfig.suspicionTimeout.toNanos());
+        }
+        if (deadline >= 0) {
+            onSuspected(id, address, deadline);
+            notifySnapshotWaiters();
+        }
+    }
+
+    /**
+     * 死活確認を行う相手を生存しているノードからシャッフルした順に選ぶメソッド
+     * 死活確認の周期処理からのみ呼び出す．
+     *
+     * @return 相手がいない場合はnull
+     */
+    InetSocketAddress selectProbeTarget() {
+        if (probeSampler.select(probeTarget, 1, environment.getRandom()) == 0) {
+            return null;
+        }
+        return members.getAddress(probeTarget[0]);
+    }
+
+    /**
+     * 間接の死活確認を依頼する相手を生存しているノードから最大destination.length個選ぶメソッド
+     * 確認対象のノードを除くため，1つ多く選んでから除く．
+     *
+     * @param target
+     * @param destination
+     * @return 格納した数
+     */
+    int selectIndirectProbers(InetSocketAddress target, InetSocketAddress[] destination) {
+        synchronized (indirectProbeCandidates) {
+            int count = Math.min(destination.length + 1, indirectProbeCandidates.length);
+            int candidates = peerSampler.select(indirectProbeCandidates, count, environment.getRandom());
+            int selected = 0;
+            for (int i = 0; i < candidates && selected < destination.length; i++) {
+                InetSocketAddress address = members.getAddress(indirectProbeCandidates[i]);
+                if (address != null && !address.equals(target)) {
+                    destination[selected++] = address;
                 }
             }
+            return selected;
+        }
+    }
+
+    /**
+     * 死活確認のメッセージを作成するメソッド
+     * 故障の疑いを早く広めるため，ノード情報も相乗りさせる．
+     *
+     * @param type
+     * @param probeSequence
+     * @param probeTarget
+     * @return
+     */
+    GossipMessage createProbeMessage(MessageType type, long probeSequence, InetSocketAddress probeTarget) {
+        return new GossipMessage(type, createSender(), collectMemberDigests(), probeSequence, probeTarget);
+    }
+
+    /**
+     * メッセージを非同期に送信するメソッド
+     * batchingが有効な場合は，次のまとめた送信まで送信を待つ．
+     *
+     * @param target
+     * @param message
+     */
+    void sendMessage(InetSocketAddress target, GossipMessage message) {
+        if (batcher != null) {
+            batcher.enqueue(target, message);
+            return;
+        }
+        executor.execute(() -> socketService.sendGossip(target, message));
+    }
+
+    /**
+     * checkpointDirectoryに自身のアドレスに対応するファイルを開くメソッド
+     *
+     * @return 開けなかった場合はnull
+     */
+    private MembershipCheckpoint openCheckpoint() {
+        Path directory = Paths.get(gossipConfig.checkpointDirectory);
+        Path file = directory.resolve(inetSocketAddress.getAddress().getHostAddress().replace(':', '_')
+                + "_" + inetSocketAddress.getPort() + ".checkpoint");
+        try {
+            Files.createDirectories(directory);
+            return new MembershipCheckpoint(file);
+        } catch (IOException e) {
+            System.out.println("Failed to open checkpoint " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存されていたメンバーシップを表に復元するメソッド
+     * 停止中の変化は分からないため，他のノードは故障の疑いありとして追加し，
+     * 新しいハートビートを受信すれば生存に戻し，受信しなければsuspicionTimeout後に故障とみなす．
+     * 故障と判定されていたノードは復元しない．
+     * 自身のシーケンス番号は，他のノードが保持している値より小さくならないように，
+     * 保存の周期の間に送信しえた回数だけ進めて復元し，インカーネーション番号は1つ増やす．
+     */
+    private void restoreCheckpoint() {
+        Duration interval = gossipConfig.adaptiveGossip ? gossipConfig.minUpdateInterval : gossipConfig.updateFrequency;
+        long missedRounds = gossipConfig.checkpointInterval.toMillis() / Math.max(1, interval.toMillis()) + 1;
+        for (MemberDigest member : checkpoint.load()) {
+            InetSocketAddress address = member.getSocketAddress();
+            if (address.equals(inetSocketAddress)) {
+                members.updateHeartbeat(self, member.getSequenceNumber() + missedRounds);
+                members.updateIncarnation(self, member.getIncarnation() + 1);
+                continue;
+            }
+            if (member.getState() == NodeState.FAILED) {
+                continue;
+            }
+            int id = members.add(address, member.getSequenceNumber(), member.getIncarnation());
+            if (id == MembershipTable.NO_MEMBER) {
+                continue;
+            }
+            addPeer(id);
+            scheduleDetection(id, members.suspect(id, gossipConfig.suspicionTimeout.toNanos()));
+        }
+    }
+
+    /**
+     * 現在のメンバーシップを保存するメソッド
+     */
+    private void writeCheckpoint() {
+        try {
+            checkpoint.write(members);
+        } catch (IOException e) {
+            System.out.println("Failed to write checkpoint: " + e.getMessage());
+        }
+    }
+
+    /**
+     * ノードを故障検知のタイマーに登録するメソッド
+     * 以前の登録はcheckNode()で無視される．
+     *
+     * @param id
+     * @param deadline
+     */
+    private void scheduleDetection(int id, long deadline) {
+        synchronized (failureTimers) {
+            members.setDetectionDeadline(id, deadline);
+            failureTimers.schedule(id, deadline);
         }
     }
 
@@ -338,26 +1451,18 @@ public class GossipService {
      * ログには各ノードのローカルIPアドレス，ポート番号，故障の有無を出力する．
      */
     private void printNodes(int frequency) {
-        new Thread(() -> {
-            while (!stopped) {
-                // getAliveMembers().forEach(node -> System.out.println(
-                // "Health status: " + node.getHostName() + ":" + node.getPort() + "- alive"));
-
-                // getFailedMembers().forEach(node -> System.out.println(
-                // "Health status: " + node.getHostName() + ":" + node.getPort() + "- failed"));
-
-                String data = inetSocketAddress.getHostName() + ","
-                        + inetSocketAddress.getPort() + "," + self.hasFailed();
-                System.out.println(data);
-                writeData(mainCSV, data);
-
-                try {
-                    Thread.sleep(frequency);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        }).start();
+        tasks.add(executor.scheduleWithFixedDelay(() -> {
+            // getAliveMembers().forEach(node -> System.out.println(
+            // "Health status: " + node.getHostName() + ":" + node.getPort() + "- alive"));
+
+            // getFailedMembers().forEach(node -> System.out.println(
+            // "Health status: " + node.getHostName() + ":" + node.getPort() + "- failed"));
+
+            String data = inetSocketAddress.getHostName() + ","
+                    + inetSocketAddress.getPort() + "," + members.hasFailed(self);
+            System.out.println(data);
+            writeData(mainCSV, data);
+        }, Duration.ofMillis(frequency)));
     }
 
     private void setEventHandler() {
@@ -374,6 +1479,12 @@ public class GossipService {
             System.out.println(csvData);
             writeData(nodeCSV, csvData);
         });
+        setOnSuspectNodeHandler((inetSocketAddress) -> {
+            String csvData = "Node " + inetSocketAddress.getHostName()
+                    + ":" + inetSocketAddress.getPort() + " suspected";
+            System.out.println(csvData);
+            writeData(nodeCSV, csvData);
+        });
         setOnRemoveNodeHandler((inetSocketAddress) -> {
             String csvData = "Node " + inetSocketAddress.getHostName()
                     + ":" + inetSocketAddress.getPort() + " removed";
@@ -391,17 +1502,13 @@ public class GossipService {
     /**
      * csvファイルにデータを書き込むメソッド
      * 第1引数のcsvファイルに第2引数の内容を追記する．
+     * 書き込みはAsyncLogWriterにより非同期に行われる．
      *
      * @param csvFail
      * @param data
      */
     private void writeData(String csvFail, String data) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvFail, true))) {
-            writer.write(data);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("エラーが発生しました: " + e.getMessage());
-        }
+        AsyncLogWriter.getDefault().append(csvFail, data);
     }
 
     /**
@@ -410,11 +1517,7 @@ public class GossipService {
      * @param file
      */
     private static void resetCSVFile(String file) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write("");
-        } catch (IOException e) {
-            System.err.println("エラーが発生しました: " + e.getMessage());
-        }
+        AsyncLogWriter.getDefault().reset(file);
     }
 
 }
@@ -0,0 +1,189 @@
+package gossip.service;
+
+import gossip.codec.GossipMessage;
+import gossip.codec.MessageCodec;
+import gossip.config.GossipConfig;
+import gossip.executor.GossipExecutor;
+
+import java.util.List;
+import java.net.Socket;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.time.Duration;
+import java.net.InetSocketAddress;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.util.concurrent.Future;
+
+/**
+ * 参加時にターゲットノードの全ノードの情報をTCPで取得するクラス
+ * 各ノードはUDPと同じポート番号でTCPの接続を待ち受ける．
+ * 参加するノードは自身をGOSSIPメッセージとして送り，ターゲットノードは保持している全ノードの情報を
+ * SYNC_REPLYメッセージに分割して返す．最後のメッセージはisComplete()がtrueになる．
+ * 各メッセージは 長さ(4) | エンコードしたメッセージ の形式で送る．
+ * 取得したノード情報は受信したゴシップと同じように統合し，以降は通常のゴシップで更新する．
+ */
+class JoinSync {
+    private static final int MAX_FRAME_SIZE = 1 << 20;// 受け付けるメッセージの最大バイト数
+
+    private final GossipService service;
+    private final GossipConfig config;
+    private final GossipExecutor executor;
+    private final MessageCodec codec;
+    private final InetSocketAddress address;// 待ち受けるアドレス
+    private volatile ServerSocket serverSocket;
+    private Future<?> server;// 接続を待ち受ける処理
+    private Future<?> joining;// 参加時の取得処理
+    private volatile Socket joinSocket;// 参加時の取得で使用中のソケット．close()で閉じて待ちを解除する
+
+    JoinSync(GossipService service, GossipConfig config, GossipExecutor executor, MessageCodec codec,
+            InetSocketAddress address) {
+        this.service = service;
+        this.config = config;
+        this.executor = executor;
+        this.codec = codec;
+        this.address = address;
+    }
+
+    /**
+     * 他のノードからの接続の待ち受けを開始するメソッド
+     * 参加は稀なため，接続は受け付けたスレッドで1つずつ処理する．
+     */
+    void startServer() {
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(address);
+        } catch (IOException e) {
+            System.out.println("Failed to start join sync server: " + e.getMessage());
+            return;
+        }
+        server = executor.startBlockingLoop("gossip-join-server-" + address.getPort(), () -> {
+            try (Socket socket = serverSocket.accept()) {
+                serve(socket);
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    // close()により待ち受けが解除された場合は終了する
+                    Thread.currentThread().interrupt();
+                } else {
+                    System.out.println("Join sync failed: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * ターゲットノードから全ノードの情報を非同期に取得するメソッド
+     * 参加時に1度だけ実行する．失敗した場合は通常のゴシップによる発見に任せる．
+     *
+     * @param target
+     */
+    void join(InetSocketAddress target) {
+        joining = executor.schedule(() -> {
+            try {
+                int merged = fetch(target);
+                if (config.logging) {
+                    System.out.println("Joined via " + target + ": " + merged + " members");
+                }
+            } catch (IOException e) {
+                System.out.println("Join sync with " + target + " failed: " + e.getMessage());
+            }
+        }, Duration.ZERO);
+    }
+
+    /**
+     * 待ち受けと取得を終了するメソッド
+     */
+    void close() {
+        if (server != null) {
+            server.cancel(true);
+        }
+        if (joining != null) {
+            joining.cancel(true);
+        }
+        // ソケットの読み書きは割り込みで解除されないため，閉じて共有のスレッドを解放する
+        Socket joinSocket = this.joinSocket;
+        if (joinSocket != null) {
+            try {
+                joinSocket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * ターゲットノードに接続し，返されたノード情報を統合するメソッド
+     *
+     * @param target
+     * @return 統合したノード情報の数
+     * @throws IOException
+     */
+    private int fetch(InetSocketAddress target) throws IOException {
+        int timeout = (int) config.joinSyncTimeout.toMillis();
+        try (Socket socket = new Socket()) {
+            joinSocket = socket;
+            socket.connect(target, timeout);
+            socket.setSoTimeout(timeout);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            writeFrame(out, service.createJoinRequest());
+            out.flush();
+            int merged = 0;
+            while (true) {
+                GossipMessage chunk = readFrame(in);
+                service.receivePeerMessage(chunk);
+                merged += chunk.getMembers().size();
+                if (chunk.isComplete()) {
+                    return merged;
+                }
+            }
+        }
+    }
+
+    /**
+     * 参加するノードからの要求に，保持している全ノードの情報を返すメソッド
+     *
+     * @param socket
+     * @throws IOException
+     */
+    private void serve(Socket socket) throws IOException {
+        socket.setSoTimeout((int) config.joinSyncTimeout.toMillis());
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        // 要求の送信元を先に統合し，参加をゴシップで広められるようにする
+        GossipMessage request = readFrame(in);
+        service.receivePeerMessage(request);
+        List<GossipMessage> chunks = service.createFullStateChunks(request.getSender().getSocketAddress());
+        for (GossipMessage chunk : chunks) {
+            writeFrame(out, chunk);
+        }
+        out.flush();
+    }
+
+    private void writeFrame(DataOutputStream out, GossipMessage message) throws IOException {
+        byte[] data = codec.encode(message);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private GossipMessage readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return codec.decode(data, 0, length);
+    }
+}
@@ -0,0 +1,151 @@
+package gossip.service;
+
+import gossip.codec.CompoundFrame;
+import gossip.codec.GossipMessage;
+import gossip.metrics.GossipMetrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.ArrayList;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 送信するメッセージを宛先ごとに溜め，flush()でまとめて送信するクラス
+ * 同じ宛先への複数のメッセージは，maxDatagramSizeに収まる限りCompoundFrameで1つのパケットにまとめる．
+ * 同じメッセージを続けて複数の宛先に送る場合は，エンコードを1回で済ませる．
+ *
+ * JDKはsendmmsgのような複数宛先への一括送信を提供しないため，
+ * flush()は1つのスレッドで全ての宛先に順に送信する．
+ */
+class OutboundBatcher {
+    private final SocketService socketService;
+    private final int maxDatagramSize;// まとめたパケットの最大バイト数
+    private final GossipMetrics metrics;
+    private final ConcurrentHashMap<InetSocketAddress, Outbox> outboxes = new ConcurrentHashMap<>();
+    private volatile Encoded lastEncoded;// 直前にエンコードしたメッセージ
+
+    OutboundBatcher(SocketService socketService, int maxDatagramSize, GossipMetrics metrics) {
+        this.socketService = socketService;
+        this.maxDatagramSize = maxDatagramSize;
+        this.metrics = metrics;
+    }
+
+    /**
+     * メッセージをエンコードし，宛先の送信待ちに追加するメソッド
+     *
+     * @param target
+     * @param message
+     */
+    void enqueue(InetSocketAddress target, GossipMessage message) {
+        byte[] data = encode(message);
+        if (data == null) {
+            return;
+        }
+        while (true) {
+            Outbox outbox = outboxes.computeIfAbsent(target, address -> new Outbox());
+            synchronized (outbox) {
+                // flush()で削除された直後の場合は，新しく作り直して追加する
+                if (!outbox.closed) {
+                    outbox.pending.add(data);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 全ての宛先の送信待ちのメッセージを送信するメソッド
+     * 送信待ちのなかった宛先は削除し，過去の宛先を保持し続けないようにする．
+     */
+    synchronized void flush() {
+        for (Map.Entry<InetSocketAddress, Outbox> entry : outboxes.entrySet()) {
+            Outbox outbox = entry.getValue();
+            List<byte[]> messages;
+            synchronized (outbox) {
+                if (outbox.pending.isEmpty()) {
+                    outbox.closed = true;
+                    outboxes.remove(entry.getKey(), outbox);
+                    continue;
+                }
+                // 送信中も追加できるように，送信待ちのリストを入れ替える
+                messages = outbox.pending;
+                outbox.pending = outbox.sending;
+                outbox.sending = messages;
+            }
+            send(entry.getKey(), messages);
+            messages.clear();
+        }
+    }
+
+    /**
+     * 1つの宛先へのメッセージを，maxDatagramSizeに収まるようにまとめて送信するメソッド
+     * 1件しか収まらない場合は，まとめずにそのまま送信する．
+     *
+     * @param target
+     * @param messages
+     */
+    private void send(InetSocketAddress target, List<byte[]> messages) {
+        int from = 0;
+        while (from < messages.size()) {
+            int to = from + 1;
+            int size = CompoundFrame.BASE_SIZE + CompoundFrame.entrySize(messages.get(from));
+            while (to < messages.size()) {
+                int entrySize = CompoundFrame.entrySize(messages.get(to));
+                if (size + entrySize > maxDatagramSize) {
+                    break;
+                }
+                size += entrySize;
+                to++;
+            }
+            if (to - from == 1) {
+                socketService.sendGossipMessage(target, messages.get(from));
+            } else {
+                socketService.sendGossipMessage(target, CompoundFrame.encode(messages, from, to));
+                metrics.coalescedMessages.add(to - from);
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * メッセージをエンコードするメソッド
+     * 直前と同じメッセージであれば，エンコード済みのバイト列を再利用する．
+     *
+     * @param message
+     * @return 変換に失敗した場合はnull
+     */
+    private byte[] encode(GossipMessage message) {
+        Encoded last = lastEncoded;
+        if (last != null && last.message == message) {
+            return last.data;
+        }
+        byte[] data = socketService.getBytesToWrite(message);
+        if (data != null) {
+            lastEncoded = new Encoded(message, data);
+        }
+        return data;
+    }
+
+    /**
+     * 1つの宛先への送信待ちのメッセージ
+     */
+    private static class Outbox {
+        List<byte[]> pending = new ArrayList<>();// 次のflush()で送信するメッセージ
+        List<byte[]> sending = new ArrayList<>();// 送信中のメッセージ．flush()以外では空
+        boolean closed = false;// outboxesから削除されたか
+    }
+
+    /**
+     * エンコード済みのメッセージ
+     */
+    private static class Encoded {
+        final GossipMessage message;
+        final byte[] data;
+
+        Encoded(GossipMessage message, byte[] data) {
+            this.message = message;
+            this.data = data;
+        }
+    }
+}
@@ -1,123 +1,196 @@
 package gossip.service;
 
+import gossip.codec.CompoundFrame;
+import gossip.codec.GossipMessage;
+import gossip.codec.MessageCodec;
+import gossip.log.AsyncLogWriter;
+import gossip.metrics.GossipMetrics;
 import gossip.node.Node;
+import gossip.transport.Transport;
 
-import java.io.*;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.SocketException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.InetSocketAddress;
+import java.util.function.Consumer;
 
 public class SocketService {
-    private DatagramSocket datagramSocket;// UDP通信を行うソケットクラス
-    private byte[] receivedBuffer = new byte[1024];// 受け取ったバイト配列
-    private DatagramPacket receivePacket = new DatagramPacket(receivedBuffer, receivedBuffer.length);// 受け取ったパケット
-    private String csvFilePath;
+    private final Transport transport;// パケットの送受信を行う通信手段
+    private String csvFilePath;// ログを出力するファイル．出力しない場合はnull
+    private final MessageCodec codec;// メッセージの変換を行うコーデック
+    private final GossipMetrics metrics;// 送受信の回数とバイト数を記録するメトリクス
 
     /**
-     * 引数のポートのUDP通信ソケットを作成するコンストラクタ
+     * 引数のポートで通信するTransportを使用するコンストラクタ
      *
      * @param portToListen
+     * @param transport
+     * @param codec
+     * @param logging
      */
-    public SocketService(int portToListen) {
-        this.csvFilePath = "log/" + portToListen + ".csv";
+    public SocketService(int portToListen, Transport transport, MessageCodec codec, boolean logging) {
+        this(portToListen, transport, codec, logging, new GossipMetrics());
+    }
 
-        try {
-            // UDPソケットを作成
-            datagramSocket = new DatagramSocket(portToListen);
-        } catch (SocketException e) {
-            System.out.println("Could not create socket connection");
-            e.printStackTrace();
-        }
+    /**
+     * 送受信をmetricsに記録するコンストラクタ
+     *
+     * @param portToListen
+     * @param transport
+     * @param codec
+     * @param logging
+     * @param metrics
+     */
+    public SocketService(int portToListen, Transport transport, MessageCodec codec, boolean logging,
+            GossipMetrics metrics) {
+        this.csvFilePath = logging ? "log/" + portToListen + ".csv" : null;
+        this.transport = transport;
+        this.codec = codec;
+        this.metrics = metrics;
+    }
+
+    /**
+     * メッセージのエンコードに使用するコーデックのゲッター
+     *
+     * @return
+     */
+    public MessageCodec getCodec() {
+        return codec;
     }
 
     /**
      * メッセージを送信するメソッド
-     * 第一引数のノードに対して，第二引数のノードからのメッセージをUDPパケットで送信する．
+     * 第一引数のノードに対して，第二引数のメッセージをUDPパケットで送信する．
      *
      * @param node
      * @param message
      */
-    public void sendGossip(Node node, Node message) {
-        byte[] bytesToWrite = getBytesToWrite(message);
-        sendGossipMessage(node, bytesToWrite);
+    public void sendGossip(Node node, GossipMessage message) {
+        sendGossip(node.getSocketAddress(), message);
     }
 
     /**
-     * UDPソケットデータを受信しするメソッド
-     * 受信したデータデータ（バイト配列）をNodeオブジェクトとして返す．
+     * メッセージを送信するメソッド
+     * 保持していないノードにも送信できるように，宛先をアドレスで指定する．
      *
-     * @return
+     * @param target
+     * @param message
      */
-    @SuppressWarnings("finally")
-    public Node receiveGossip() {
-        try {
-            // UDPパケットを待ち受け，受信したらデータをreceivePacketに格納する
-            datagramSocket.receive(receivePacket);
-            // 受信したデータ（バイト配列）をObjectInputStreamに変換する
-            ObjectInputStream objectInputStream = new ObjectInputStream(
-                    new ByteArrayInputStream(receivePacket.getData()));
+    public void sendGossip(InetSocketAddress target, GossipMessage message) {
+        byte[] bytesToWrite = getBytesToWrite(message);
+        if (bytesToWrite != null) {
+            sendGossipMessage(target, bytesToWrite);
+        }
+    }
 
-            Node message = null;
+    /**
+     * メッセージの受信を開始するメソッド
+     * 受信したデータをGossipMessageオブジェクトに変換してonMessageに渡す．
+     * 変換に失敗したパケットは破棄する．
+     *
+     * @param onMessage
+     */
+    public void startReceiving(Consumer<GossipMessage> onMessage) {
+        transport.start((packet, sender) -> {
+            metrics.packetsReceived.increment();
+            metrics.bytesReceived.add(packet.remaining());
             try {
-                // データをNodeオブジェクトとして読み込む
-                message = (Node) objectInputStream.readObject();
-
-                String csvData = "Received gossip message from [" + message.getUniqueId() + "]";
-                writeData(csvFilePath, csvData);
-
-            } catch (ClassNotFoundException e) {
-                e.printStackTrace();
-            } finally {
-                objectInputStream.close();
-                return message;
+                if (!CompoundFrame.isCompound(packet)) {
+                    receiveMessage(packet, sender, onMessage);
+                    return;
+                }
+                // まとめて送信されたメッセージは1件ずつ処理する
+                CompoundFrame.split(packet, message -> receiveMessage(message, sender, onMessage));
+            } catch (IOException e) {
+                metrics.decodeFailures.increment();
+                System.out.println("Could not split packet from [" + sender + "] because: " + e.getMessage());
+            } catch (RuntimeException | Error e) {
+                // 処理できないパケットも不正なパケットとして数え，受信を続ける
+                metrics.decodeFailures.increment();
+                System.out.println("Could not handle packet from [" + sender + "] because: " + e);
             }
+        });
+    }
+
+    /**
+     * 受信したメッセージ1件をGossipMessageオブジェクトに変換してonMessageに渡すメソッド
+     *
+     * @param data
+     * @param sender
+     * @param onMessage
+     */
+    private void receiveMessage(ByteBuffer data, InetSocketAddress sender, Consumer<GossipMessage> onMessage) {
+        GossipMessage message;
+        try {
+            // 受信したバッファから複製せずにGossipMessageオブジェクトとして読み込む
+            message = codec.decode(data);
         } catch (IOException e) {
-            e.printStackTrace();
+            metrics.decodeFailures.increment();
+            System.out.println("Could not decode packet from [" + sender + "] because: " + e.getMessage());
+            return;
         }
-        return null;
+
+        if (csvFilePath != null) {
+            String csvData = "Received gossip message from [" + message.getSender().getUniqueId()
+                    + "] with " + message.getMembers().size() + " members";
+            writeData(csvFilePath, csvData);
+        }
+        onMessage.accept(message);
+    }
+
+    /**
+     * 送受信を停止するメソッド
+     * 受信待ちの処理も解除される．
+     */
+    public void close() {
+        transport.close();
     }
 
     /**
-     * 引数で指定するNodeメッセージをバイト配列に変換するメソッド
+     * 引数で指定するゴシップメッセージをバイト配列に変換するメソッド
      *
      * @param message
-     * @return
+     * @return 変換に失敗した場合はnull
      */
-    private byte[] getBytesToWrite(Node message) {
-        ByteArrayOutputStream bStream = new ByteArrayOutputStream();
-
-        String csvData = "Writing message " + message.getNetworkMessage();
-        writeData(csvFilePath, csvData);
+    byte[] getBytesToWrite(GossipMessage message) {
+        Node sender = message.getSender();
+        if (csvFilePath != null) {
+            String csvData = "Writing message " + sender.getNetworkMessage();
+            writeData(csvFilePath, csvData);
+        }
 
         try {
-            ObjectOutput oo = new ObjectOutputStream(bStream);
-            oo.writeObject(message);
-            oo.close();
+            return codec.encode(message);
         } catch (IOException e) {
-            System.out.println("Could not send " + message.getNetworkMessage() + "] because: " + e.getMessage());
+            System.out.println("Could not send " + sender.getNetworkMessage() + "] because: " + e.getMessage());
             e.printStackTrace();
         }
-        return bStream.toByteArray();
+        return null;
     }
 
     /**
      * ゴシップメッセージを送信するメソッド
-     * 第一引数のNodeに対して第二引数のバイト配列を送信する．
+     * 第一引数のアドレスに対して第二引数のバイト配列を送信する．
      *
      * @param target
      * @param data
      */
-    private void sendGossipMessage(Node target, byte[] data) {
-        // パケットはデータ，データ長，ターゲットのIPアドレス，ターゲットのポート番号を保持する．
-        DatagramPacket packet = new DatagramPacket(data, data.length, target.getInetAddress(), target.getPort());
+    void sendGossipMessage(InetSocketAddress target, byte[] data) {
         try {
-            datagramSocket.send(packet);
+            if (!transport.send(target, ByteBuffer.wrap(data))) {
+                metrics.packetsDropped.increment();
+                return;
+            }
+            metrics.packetsSent.increment();
+            metrics.bytesSent.add(data.length);
 
-            String csvData = "Sending gossip message to [" + target.getUniqueId() + "]";
-            writeData(csvFilePath, csvData);
+            if (csvFilePath != null) {
+                String csvData = "Sending gossip message to [" + target + "]";
+                writeData(csvFilePath, csvData);
+            }
 
         } catch (IOException e) {
-            System.out.println("Fatal error trying to send: " + packet + " to [" + target.getSocketAddress() + "]");
+            metrics.sendFailures.increment();
+            System.out.println("Fatal error trying to send " + data.length + " bytes to [" + target + "]");
             e.printStackTrace();
             // target.setFailed(true);
         }
@@ -126,17 +199,13 @@ public class SocketService {
     /**
      * csvファイルにデータを書き込むメソッド
      * 第1引数のcsvファイルに第2引数の内容を追記する．
+     * 書き込みはAsyncLogWriterにより非同期に行われる．
      *
      * @param csvFail
      * @param data
      */
     private void writeData(String csvFail, String data) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvFail, true))) {
-            writer.write(data);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("エラーが発生しました: " + e.getMessage());
-        }
+        AsyncLogWriter.getDefault().append(csvFail, data);
     }
 
 }
@@ -0,0 +1,138 @@
+package gossip.service;
+
+import gossip.codec.GossipMessage;
+import gossip.codec.MessageType;
+import gossip.config.GossipConfig;
+import gossip.executor.GossipExecutor;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SWIM方式の死活確認を行うクラス
+ * 周期ごとに1つのノードへPINGを送り，probeTimeout以内にACKがなければ
+ * 他のノードにPING_REQで間接的な確認を依頼する．周期の終わりまでにACKがなければ故障を疑う．
+ * 他のノードから依頼されたPINGへの応答とPING_REQの中継もこのクラスで行う．
+ */
+class SwimProber {
+    private final GossipService service;
+    private final GossipConfig config;
+    private final GossipExecutor executor;
+    private final AtomicLong probeSequence = new AtomicLong();// 死活確認の番号
+    // 応答を待っている死活確認．ACKを受信したものは削除する
+    private final ConcurrentHashMap<Long, Probe> pendingProbes = new ConcurrentHashMap<>();
+    private final InetSocketAddress[] relays;// 間接の確認を依頼する相手を格納する配列．自身のロックで保護する
+
+    SwimProber(GossipService service, GossipConfig config, GossipExecutor executor) {
+        this.service = service;
+        this.config = config;
+        this.executor = executor;
+        this.relays = new InetSocketAddress[config.indirectProbes];
+    }
+
+    /**
+     * 生存しているノードに順に死活確認を行うメソッド
+     * probeIntervalごとに実行される．
+     */
+    void probe() {
+        InetSocketAddress target = service.selectProbeTarget();
+        if (target == null) {
+            return;
+        }
+        long sequence = probeSequence.incrementAndGet();
+        pendingProbes.put(sequence, new Probe(target, null, 0));
+        service.sendMessage(target, service.createProbeMessage(MessageType.PING, sequence, null));
+        executor.schedule(() -> probeIndirectly(sequence, target), config.probeTimeout);
+        executor.schedule(() -> finishProbe(sequence, target), config.probeInterval);
+    }
+
+    /**
+     * 直接の確認に応答がない場合に，他のノードに確認を依頼するメソッド
+     *
+     * @param sequence
+     * @param target
+     */
+    private void probeIndirectly(long sequence, InetSocketAddress target) {
+        if (!pendingProbes.containsKey(sequence)) {
+            return;
+        }
+        GossipMessage request = service.createProbeMessage(MessageType.PING_REQ, sequence, target);
+        synchronized (relays) {
+            int count = service.selectIndirectProbers(target, relays);
+            for (int i = 0; i < count; i++) {
+                service.sendMessage(relays[i], request);
+            }
+        }
+    }
+
+    /**
+     * 周期の終わりまでに応答がなければ，対象のノードの故障を疑うメソッド
+     *
+     * @param sequence
+     * @param target
+     */
+    private void finishProbe(long sequence, InetSocketAddress target) {
+        if (pendingProbes.remove(sequence) != null) {
+            service.suspectMember(target);
+        }
+    }
+
+    /**
+     * 死活確認に関するメッセージを処理するメソッド
+     *
+     * @param message
+     */
+    void handle(GossipMessage message) {
+        InetSocketAddress sender = message.getSender().getSocketAddress();
+        long sequence = message.getProbeSequence();
+        switch (message.getType()) {
+            case PING:
+                service.sendMessage(sender, service.createProbeMessage(MessageType.ACK, sequence, null));
+                break;
+            case PING_REQ:
+                relay(sender, sequence, message.getProbeTarget());
+                break;
+            case ACK:
+                Probe probe = pendingProbes.remove(sequence);
+                // 中継した確認であれば，依頼元の番号でACKを返す
+                if (probe != null && probe.requester != null) {
+                    service.sendMessage(probe.requester,
+                            service.createProbeMessage(MessageType.ACK, probe.requesterSequence, null));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 依頼されたノードにPINGを送り，ACKを依頼元に中継するメソッド
+     * 応答がなければ何もせず，依頼元の周期の終わりに故障が疑われる．
+     *
+     * @param requester
+     * @param requesterSequence
+     * @param target
+     */
+    private void relay(InetSocketAddress requester, long requesterSequence, InetSocketAddress target) {
+        long sequence = probeSequence.incrementAndGet();
+        pendingProbes.put(sequence, new Probe(target, requester, requesterSequence));
+        service.sendMessage(target, service.createProbeMessage(MessageType.PING, sequence, null));
+        executor.schedule(() -> pendingProbes.remove(sequence), config.probeInterval);
+    }
+
+    /**
+     * 応答を待っている死活確認
+     */
+    private static class Probe {
+        final InetSocketAddress target;// 確認するノード
+        final InetSocketAddress requester;// PING_REQの依頼元．自身の確認であればnull
+        final long requesterSequence;// 依頼元の確認の番号
+
+        Probe(InetSocketAddress target, InetSocketAddress requester, long requesterSequence) {
+            this.target = target;
+            this.requester = requester;
+            this.requesterSequence = requesterSequence;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package gossip.sim;
+
+import gossip.codec.GossipMessage;
+import gossip.codec.MessageCodec;
+import gossip.config.GossipConfig;
+import gossip.node.MemberDigest;
+import gossip.node.MembershipSnapshot;
+import gossip.node.Node;
+import gossip.service.ExchangeMode;
+import gossip.service.GossipService;
+import gossip.transport.Transport;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Arrays;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.net.InetSocketAddress;
+import java.io.UncheckedIOException;
+
+/**
+ * 情報の伝播にかかる時間を計測するメインクラス
+ * N個のノードの情報が全ノードに行き渡った後にイベントを1つ発生させ，
+ * 他の各ノードがそれを観測するまでの仮想時間を記録する．
+ * 収束後に1つのノードが保持している全ノードの要約を符号化し，1ノードあたりのバイト数も記録する．
+ * 引数: イベント(join|crash|heartbeat) ノード数 送信相手の数 送信間隔（ミリ秒） 試行回数 シード 故障判定時間（ミリ秒） 交換方式(push|push_pull)
+ *
+ * <pre>
+ * join      : 新しいノードが参加し，各ノードが新しいノードとして追加するまで
+ * crash     : ノードが停止し，各ノードが故障と判定するまで（failureTimeoutを含む）
+ * heartbeat : ノードがシーケンス番号を更新し，各ノードがそれ以上の値を保持するまで
+ * </pre>
+ */
+public class ConvergenceHarness {
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);// 観測状況を確認する間隔
+    private static final Duration WARMUP_LIMIT = Duration.ofMinutes(1);// 事前の収束を待つ最大時間
+
+    /**
+     * 発生させるイベントの種類
+     */
+    public enum Event {
+        JOIN, CRASH, HEARTBEAT
+    }
+
+    private final Event event;
+    private final int nodeCount;
+    private final GossipConfig gossipConfig;
+    private final long seed;
+
+    private Simulation simulation;
+    private long[] observedAt;// 観測者ごとの観測時刻（仮想時刻のナノ秒）．未観測は-1
+    private int observed;
+
+    public ConvergenceHarness(Event event, int nodeCount, GossipConfig gossipConfig, long seed) {
+        this.event = event;
+        this.nodeCount = nodeCount;
+        this.gossipConfig = gossipConfig;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) {
+        Event event = args.length > 0 ? Event.valueOf(args[0].toUpperCase()) : Event.JOIN;
+        int nodeCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int fanout = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        long updateMillis = args.length > 3 ? Long.parseLong(args[3]) : 500;
+        int trials = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        // ノード数が多い場合に計測中の誤判定で収束しなくならないように，既定値は長めにする
+        long timeoutMillis = args.length > 6 ? Long.parseLong(args[6]) : Math.max(10000, updateMillis * 20);
+        ExchangeMode exchangeMode = args.length > 7 ? ExchangeMode.valueOf(args[7].toUpperCase()) : ExchangeMode.PUSH;
+        List<String> options = args.length > 8 ? Arrays.asList(args[8].toLowerCase().split(",")) : List.of();
+
+        Duration updateFrequency = Duration.ofMillis(updateMillis);
+        Duration timeout = Duration.ofMillis(timeoutMillis);
+        GossipConfig gossipConfig = new GossipConfig(timeout, timeout, updateFrequency, updateFrequency, fanout);
+        gossipConfig.logging = false;
+        gossipConfig.exchangeMode = exchangeMode;
+        gossipConfig.compactEncoding = options.contains("compact");
+        gossipConfig.adaptiveGossip = options.contains("adaptive");
+
+        ConvergenceHarness harness = new ConvergenceHarness(event, nodeCount, gossipConfig, seed);
+        System.out.println("event=" + event + " nodes=" + nodeCount + " fanout=" + fanout
+                + " interval=" + updateMillis + "ms timeout=" + timeoutMillis + "ms mode=" + exchangeMode
+                + " options=" + options + " trials=" + trials);
+        System.out.println("trial,observed,p50(ms),p99(ms),max(ms),rounds,bytes/node,bytes/digest");
+
+        List<Long> allDelays = new ArrayList<>();
+        long expected = 0;
+        double maxRounds = 0;
+        double totalRounds = 0;
+        long totalBytes = 0;
+        double totalDigestBytes = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            Result result = harness.runTrial(trial);
+            for (long delay : result.delays) {
+                allDelays.add(delay);
+            }
+            expected += result.observers;
+            double rounds = result.rounds(updateFrequency);
+            maxRounds = Math.max(maxRounds, rounds);
+            totalRounds += rounds;
+            totalBytes += result.bytesPerNode;
+            totalDigestBytes += result.bytesPerDigest;
+            System.out.println(trial + "," + result.delays.length + "/" + result.observers + ","
+                    + millis(percentile(result.delays, 0.50)) + "," + millis(percentile(result.delays, 0.99)) + ","
+                    + millis(percentile(result.delays, 1.0)) + "," + String.format("%.1f", rounds) + ","
+                    + result.bytesPerNode + "," + String.format("%.2f", result.bytesPerDigest));
+        }
+
+        long[] delays = allDelays.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(delays);
+        System.out.println("observed=" + delays.length + "/" + expected
+                + " p50=" + millis(percentile(delays, 0.50)) + "ms"
+                + " p99=" + millis(percentile(delays, 0.99)) + "ms"
+                + " max=" + millis(percentile(delays, 1.0)) + "ms"
+                + " rounds(avg/max)=" + String.format("%.1f/%.1f", totalRounds / trials, maxRounds)
+                + " bytes/node=" + (totalBytes / trials)
+                + " bytes/digest=" + String.format("%.2f", totalDigestBytes / trials));
+    }
+
+    /**
+     * 1回の試行を行うメソッド
+     * ネットワークの構築，収束の待機，イベントの発生，観測の待機を順に行う．
+     *
+     * @param trial
+     * @return
+     */
+    public Result runTrial(int trial) {
+        simulation = new Simulation(seed + trial, Duration.ofMillis(1), Duration.ofMillis(1), 0.0);
+        Random random = new Random(seed + trial);
+        List<GossipService> gossipServices = new ArrayList<>(nodeCount);
+
+        // 各ノードは直前のノードに接続し，ネットワークを構築する
+        for (int i = 0; i < nodeCount; i++) {
+            GossipService gossipService = i == 0
+                    ? new GossipService(Simulation.addressOf(i), gossipConfig, null, simulation)
+                    : new GossipService(Simulation.addressOf(i), Simulation.addressOf(i - 1),
+                            gossipConfig, null, simulation);
+            gossipService.start();
+            gossipServices.add(gossipService);
+        }
+        awaitConvergence(gossipServices);
+        double bytesPerDigest = measureDigestSize(gossipServices.get(0), new Random(seed + trial));
+
+        // イベントの対象以外のノードを観測者とする
+        List<GossipService> observers = new ArrayList<>(gossipServices);
+        int targetIndex = event == Event.JOIN ? nodeCount : random.nextInt(nodeCount);
+        InetSocketAddress target = Simulation.addressOf(targetIndex);
+        GossipService targetService = event == Event.JOIN ? null : observers.remove(targetIndex);
+        observedAt = new long[observers.size()];
+        Arrays.fill(observedAt, -1);
+        observed = 0;
+
+        long bytesBefore = simulation.getNetwork().getSentBytes();
+        long injectedAt = simulation.getClock().nanoTime();
+        long heartbeat = 0;
+        switch (event) {
+            case JOIN:
+                for (int i = 0; i < observers.size(); i++) {
+                    int observer = i;
+                    observers.get(i).setOnNewNodeHandler(address -> {
+                        if (address.equals(target)) {
+                            observe(observer);
+                        }
+                    });
+                }
+                targetService = new GossipService(target, Simulation.addressOf(random.nextInt(nodeCount)),
+                        gossipConfig, null, simulation);
+                targetService.start();
+                gossipServices.add(targetService);
+                break;
+            case CRASH:
+                for (int i = 0; i < observers.size(); i++) {
+                    int observer = i;
+                    observers.get(i).setOnFailedNodeHandler(address -> {
+                        if (address.equals(target)) {
+                            observe(observer);
+                        }
+                    });
+                }
+                targetService.stop();
+                break;
+            case HEARTBEAT:
+                // 次に送信されるシーケンス番号を観測の対象とする
+                heartbeat = targetService.getSequenceNumber(target) + 1;
+                break;
+        }
+
+        // 故障の判定にはfailureTimeoutがかかるため，その分も待つ
+        long deadline = injectedAt + gossipConfig.failureTimeout.toNanos()
+                + gossipConfig.updateFrequency.toNanos() * 100;
+        while (observed < observers.size() && simulation.getClock().nanoTime() < deadline) {
+            simulation.runFor(POLL_INTERVAL);
+            if (event == Event.HEARTBEAT) {
+                for (int i = 0; i < observers.size(); i++) {
+                    if (observedAt[i] < 0 && observers.get(i).getSequenceNumber(target) >= heartbeat) {
+                        observe(i);
+                    }
+                }
+            }
+        }
+        long bytes = simulation.getNetwork().getSentBytes() - bytesBefore;
+
+        for (GossipService gossipService : gossipServices) {
+            gossipService.stop();
+        }
+
+        long[] delays = new long[observed];
+        int count = 0;
+        for (long time : observedAt) {
+            if (time >= 0) {
+                delays[count++] = time - injectedAt;
+            }
+        }
+        Arrays.sort(delays);
+        return new Result(delays, observers.size(), bytes / gossipServices.size(), bytesPerDigest);
+    }
+
+    /**
+     * 全ノードが全てのノードの情報を保持するまでシミュレーションを進めるメソッド
+     *
+     * @param gossipServices
+     */
+    private void awaitConvergence(List<GossipService> gossipServices) {
+        long deadline = simulation.getClock().nanoTime() + WARMUP_LIMIT.toNanos();
+        while (simulation.getClock().nanoTime() < deadline) {
+            simulation.runFor(gossipConfig.updateFrequency);
+            boolean converged = true;
+            for (GossipService gossipService : gossipServices) {
+                if (gossipService.getMemberCount() != nodeCount) {
+                    converged = false;
+                    break;
+                }
+            }
+            if (converged) {
+                return;
+            }
+        }
+        // 誤って故障と判定され削除されたノードが戻らない場合があるため，収束しなくても計測は続ける
+        int min = Integer.MAX_VALUE;
+        for (GossipService gossipService : gossipServices) {
+            min = Math.min(min, gossipService.getMemberCount());
+        }
+        System.err.println("Cluster did not converge within " + WARMUP_LIMIT.toSeconds() + "s (min members: " + min + ")");
+    }
+
+    /**
+     * ノードが保持している全ノードの要約を，送信時と同じく無作為な順に並べて1つのメッセージに符号化し，
+     * 要約1つあたりのバイト数を返すメソッド
+     *
+     * @param gossipService
+     * @param random
+     * @return
+     */
+    private double measureDigestSize(GossipService gossipService, Random random) {
+        MessageCodec codec = gossipConfig.wireFormat.createCodec(gossipConfig.compactEncoding, 0,
+                Transport.MAX_DATAGRAM_SIZE);
+        MembershipSnapshot snapshot = gossipService.getMembershipSnapshot();
+        List<MemberDigest> digests = new ArrayList<>();
+        for (InetSocketAddress address : snapshot.getAllMembers()) {
+            digests.add(new MemberDigest(address, gossipService.getSequenceNumber(address), 0,
+                    snapshot.getState(address)));
+        }
+        Collections.shuffle(digests, random);
+        Node sender = new Node(gossipService.inetSocketAddress, 0);
+        try {
+            int baseSize = codec.encode(new GossipMessage(sender, Collections.emptyList())).length;
+            int size = codec.encode(new GossipMessage(sender, digests)).length;
+            return digests.isEmpty() ? 0 : (double) (size - baseSize) / digests.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 観測者がイベントを観測した時刻を記録するメソッド
+     * 最初の観測のみを記録する．
+     *
+     * @param observer
+     */
+    private void observe(int observer) {
+        if (observedAt[observer] < 0) {
+            observedAt[observer] = simulation.getClock().nanoTime();
+            observed++;
+        }
+    }
+
+    /**
+     * 昇順に並んだ値からパーセンタイル値を返すメソッド
+     *
+     * @param sorted
+     * @param quantile
+     * @return 値がない場合は-1
+     */
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "-" : String.format("%.1f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * 1回の試行の結果
+     */
+    public static class Result {
+        public final long[] delays;// 各観測者の観測までの時間（ナノ秒，昇順）
+        public final int observers;// 観測者の数
+        public final long bytesPerNode;// イベント発生から観測完了までの1ノードあたりの送信バイト数
+        public final double bytesPerDigest;// 収束後に符号化したノード情報の要約1つあたりのバイト数
+
+        Result(long[] delays, int observers, long bytesPerNode, double bytesPerDigest) {
+            this.delays = delays;
+            this.observers = observers;
+            this.bytesPerNode = bytesPerNode;
+            this.bytesPerDigest = bytesPerDigest;
+        }
+
+        /**
+         * 最後の観測までにかかった送信周期の数を返すメソッド
+         *
+         * @param updateFrequency
+         * @return
+         */
+        public double rounds(Duration updateFrequency) {
+            if (delays.length == 0) {
+                return 0;
+            }
+            return (double) delays[delays.length - 1] / updateFrequency.toNanos();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package gossip.sim;
+
+import gossip.executor.GossipExecutor;
+
+import java.util.Random;
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 離散イベントシミュレーションを行うGossipExecutor
+ * 処理は仮想時刻の順に1つのスレッドで実行されるため，同じシードであれば結果は常に同じになる．
+ * 処理の完了を待つとシミュレーションが進まないため，Futureのget()は完了済みの場合のみ結果を返す．
+ */
+public class EventScheduler implements GossipExecutor {
+    private final VirtualClock clock;
+    private final Random random;
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private long sequence = 0;// 同じ時刻のイベントを登録順に処理するための番号
+    private long processedEvents = 0;
+
+    public EventScheduler(VirtualClock clock, Random random) {
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * 仮想時刻のdelayNanos後に処理を実行するように登録するメソッド
+     *
+     * @param delayNanos
+     * @param action
+     * @return
+     */
+    public Event schedule(long delayNanos, Runnable action) {
+        Event event = new Event(clock.nanoTime() + Math.max(0, delayNanos), sequence++, action);
+        events.add(event);
+        return event;
+    }
+
+    /**
+     * 指定した仮想時刻までイベントを処理するメソッド
+     *
+     * @param endNanos
+     */
+    public void runUntil(long endNanos) {
+        while (!events.isEmpty() && events.peek().time <= endNanos) {
+            Event event = events.poll();
+            if (event.cancelled) {
+                continue;
+            }
+            clock.advanceTo(event.time);
+            event.action.run();
+            event.done = true;
+            processedEvents++;
+        }
+        clock.advanceTo(endNanos);
+    }
+
+    /**
+     * これまでに処理したイベント数を返すメソッド
+     *
+     * @return
+     */
+    public long getProcessedEvents() {
+        return processedEvents;
+    }
+
+    @Override
+    public Future<?> scheduleWithFixedDelay(Runnable task, Duration interval) {
+        long intervalNanos = interval.toNanos();
+        PeriodicTask periodicTask = new PeriodicTask(task, intervalNanos);
+        // 全ノードが同じ時刻に動作しないように，初回の実行時刻をずらす
+        periodicTask.next = schedule((long) (random.nextDouble() * intervalNanos), periodicTask);
+        return periodicTask;
+    }
+
+    @Override
+    public Future<?> schedule(Runnable task, Duration delay) {
+        return schedule(delay.toNanos(), task);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        schedule(0, task);
+    }
+
+    /**
+     * ブロックする処理は仮想時刻を止めてしまうため実行できない
+     * Simulationはブロックする処理を必要とする設定を作成時に拒否するため，GossipServiceからは呼び出されない．
+     */
+    @Override
+    public Future<?> startBlockingLoop(String name, Runnable loop) {
+        throw new IllegalStateException("Blocking loop " + name + " cannot run in a simulation");
+    }
+
+    /**
+     * 仮想時刻に実行される処理
+     */
+    public static class Event implements Comparable<Event>, Future<Object> {
+        final long time;
+        final long sequence;
+        final Runnable action;
+        boolean cancelled = false;
+        boolean done = false;// 処理を実行したか
+
+        Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int compared = Long.compare(time, other.time);
+            return compared != 0 ? compared : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return cancelled || done;
+        }
+
+        /**
+         * 実行済みの場合はnullを返すメソッド
+         * 未実行の処理を待つとシミュレーションが進まないため，待たずに例外とする．
+         */
+        @Override
+        public Object get() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (!done) {
+                throw new IllegalStateException("Event has not run yet; advance the simulation first");
+            }
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws TimeoutException {
+            if (!cancelled && !done) {
+                // 待っている間は仮想時刻が進まないため，実行されることはない
+                throw new TimeoutException();
+            }
+            return get();
+        }
+    }
+
+    /**
+     * 実行が終わるたびに次の実行を登録する周期処理
+     */
+    private class PeriodicTask implements Runnable, Future<Object> {
+        private final Runnable task;
+        private final long intervalNanos;
+        private Event next;
+        private boolean cancelled = false;
+
+        PeriodicTask(Runnable task, long intervalNanos) {
+            this.task = task;
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+            if (!cancelled) {
+                next = schedule(intervalNanos, this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            cancelled = true;
+            if (next != null) {
+                next.cancelled = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 周期処理は取り消されるまで完了しない
+         */
+        @Override
+        public boolean isDone() {
+            return cancelled;
+        }
+
+        @Override
+        public Object get() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            throw new IllegalStateException("Periodic task never completes unless cancelled");
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws TimeoutException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            throw new TimeoutException();
+        }
+    }
+}
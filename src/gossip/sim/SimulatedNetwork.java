@@ -0,0 +1,120 @@
+package gossip.sim;
+
+import gossip.transport.PacketHandler;
+import gossip.transport.Transport;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.net.InetSocketAddress;
+
+/**
+ * シミュレーション内のノード間でパケットを受け渡すネットワーク
+ * パケットは遅延と損失を加えてEventSchedulerのイベントとして配送される．
+ */
+public class SimulatedNetwork {
+    private final EventScheduler scheduler;
+    private final Random random;
+    private final long latencyNanos;// 片道の遅延
+    private final long jitterNanos;// 遅延のばらつきの最大値
+    private final double lossRate;// パケットの損失率
+    private final Map<InetSocketAddress, PacketHandler> handlers = new HashMap<>();
+    private long sentPackets = 0;
+    private long sentBytes = 0;
+    private long droppedPackets = 0;
+
+    public SimulatedNetwork(EventScheduler scheduler, Random random,
+            long latencyNanos, long jitterNanos, double lossRate) {
+        this.scheduler = scheduler;
+        this.random = random;
+        this.latencyNanos = latencyNanos;
+        this.jitterNanos = jitterNanos;
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * 引数のアドレスで通信するTransportを作成するメソッド
+     *
+     * @param address
+     * @return
+     */
+    public Transport createTransport(InetSocketAddress address) {
+        return new InMemoryTransport(address);
+    }
+
+    /**
+     * 送信したパケット数を返すメソッド
+     *
+     * @return
+     */
+    public long getSentPackets() {
+        return sentPackets;
+    }
+
+    /**
+     * 送信したバイト数を返すメソッド
+     *
+     * @return
+     */
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * 損失または宛先不在により破棄したパケット数を返すメソッド
+     *
+     * @return
+     */
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    private void send(InetSocketAddress sender, InetSocketAddress target, ByteBuffer data) {
+        byte[] packet = new byte[data.remaining()];
+        data.get(packet);
+        sentPackets++;
+        sentBytes += packet.length;
+        if (random.nextDouble() < lossRate) {
+            droppedPackets++;
+            return;
+        }
+        long delay = latencyNanos + (jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0);
+        scheduler.schedule(delay, () -> {
+            PacketHandler handler = handlers.get(target);
+            if (handler == null) {// 宛先のノードが停止している場合
+                droppedPackets++;
+                return;
+            }
+            handler.onPacket(ByteBuffer.wrap(packet), sender);
+        });
+    }
+
+    /**
+     * メモリ上でパケットを受け渡すTransport
+     */
+    private class InMemoryTransport implements Transport {
+        private final InetSocketAddress address;
+
+        InMemoryTransport(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        public void start(PacketHandler handler) {
+            handlers.put(address, handler);
+        }
+
+        @Override
+        public boolean send(InetSocketAddress target, ByteBuffer data) {
+            // 損失はネットワーク上で起こるものとして扱い，送信側では常に送信できる
+            SimulatedNetwork.this.send(address, target, data);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            handlers.remove(address);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package gossip.sim;
+
+import gossip.clock.Clock;
+import gossip.config.GossipConfig;
+import gossip.executor.GossipExecutor;
+import gossip.service.GossipEnvironment;
+import gossip.transport.Transport;
+import gossip.transport.TransportMode;
+
+import java.util.Random;
+import java.time.Duration;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executor;
+
+/**
+ * 仮想時刻とメモリ上のネットワークでGossipServiceを動作させるシミュレーション環境
+ * 全ての処理は呼び出し元のスレッドでrunFor()の中で実行される．
+ */
+public class Simulation implements GossipEnvironment {
+    private final VirtualClock clock = new VirtualClock();
+    private final Random random;
+    private final EventScheduler scheduler;
+    private final SimulatedNetwork network;
+
+    /**
+     * シードと通信路の特性を指定するコンストラクタ
+     *
+     * @param seed
+     * @param latency
+     * @param jitter
+     * @param lossRate
+     */
+    public Simulation(long seed, Duration latency, Duration jitter, double lossRate) {
+        this.random = new Random(seed);
+        this.scheduler = new EventScheduler(clock, random);
+        this.network = new SimulatedNetwork(scheduler, random, latency.toNanos(), jitter.toNanos(), lossRate);
+    }
+
+    /**
+     * n番目のノードに割り当てるアドレスを返すメソッド
+     * 10.0.0.0/8の範囲から割り当てるため，名前解決は行われない．
+     *
+     * @param n
+     * @return
+     */
+    public static InetSocketAddress addressOf(int n) {
+        byte[] address = { 10, (byte) (n >>> 16), (byte) (n >>> 8), (byte) n };
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(address), 7946);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * シミュレーションを指定した仮想時間だけ進めるメソッド
+     *
+     * @param duration
+     */
+    public void runFor(Duration duration) {
+        scheduler.runUntil(clock.nanoTime() + duration.toNanos());
+    }
+
+    /**
+     * 仮想時刻のdelay後に処理を実行するように登録するメソッド
+     *
+     * @param delay
+     * @param action
+     */
+    public void schedule(Duration delay, Runnable action) {
+        scheduler.schedule(delay.toNanos(), action);
+    }
+
+    /**
+     * シミュレーション内のネットワークを返すメソッド
+     *
+     * @return
+     */
+    public SimulatedNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * 処理したイベント数を返すメソッド
+     *
+     * @return
+     */
+    public long getProcessedEvents() {
+        return scheduler.getProcessedEvents();
+    }
+
+    @Override
+    public Clock getClock() {
+        return clock;
+    }
+
+    @Override
+    public GossipExecutor getExecutor() {
+        return scheduler;
+    }
+
+    /**
+     * メモリ上のネットワークに接続するTransportを作成するメソッド
+     * GossipServiceの作成時に呼び出されるため，シミュレーションで再現できない設定はここで拒否する．
+     *
+     * @param address
+     * @param config
+     * @return
+     * @throws IllegalArgumentException シミュレーションで再現できない設定の場合
+     */
+    @Override
+    public Transport createTransport(InetSocketAddress address, GossipConfig config) {
+        validate(config);
+        return network.createTransport(address);
+    }
+
+    /**
+     * シミュレーションで再現できない設定を拒否するメソッド
+     * 通信はメモリ上のネットワークに置き換えるため，ソケットの受信を待つスレッドを必要とする方式や，
+     * TCPで直接接続する参加時の全ノードの情報の取得は指定できない．
+     *
+     * @param config
+     */
+    private static void validate(GossipConfig config) {
+        if (config.joinSync) {
+            throw new IllegalArgumentException("joinSync opens TCP connections and cannot run in a simulation");
+        }
+        if (config.transportMode == TransportMode.BLOCKING_SOCKET) {
+            throw new IllegalArgumentException("transportMode " + config.transportMode
+                    + " needs a blocking receive thread and cannot run in a simulation");
+        }
+    }
+
+    /**
+     * 配送を仮想時刻の現在の時点のイベントとして登録するExecutorを作成するメソッド
+     * ゴシップの処理とは別のイベントとして実行するが，実行順はシードで決まる．
+     *
+     * @param address
+     * @return
+     */
+    @Override
+    public Executor createEventDispatcher(InetSocketAddress address) {
+        return task -> scheduler.schedule(0, task);
+    }
+
+    @Override
+    public Random getRandom() {
+        return random;
+    }
+}
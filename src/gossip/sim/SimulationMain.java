@@ -0,0 +1,67 @@
+package gossip.sim;
+
+import gossip.config.GossipConfig;
+import gossip.service.GossipService;
+
+import java.util.List;
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * シミュレーションを実行するメインクラス
+ * 引数: ノード数 シミュレーション時間（秒） シード
+ */
+public class SimulationMain {
+
+    public static void main(String[] args) {
+        int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        // ゴシッププロトコル設定
+        GossipConfig gossipConfig = new GossipConfig(
+                Duration.ofSeconds(3),
+                Duration.ofSeconds(3),
+                Duration.ofMillis(500),
+                Duration.ofMillis(500),
+                3);
+        gossipConfig.logging = false;
+
+        Simulation simulation = new Simulation(seed, Duration.ofMillis(1), Duration.ofMillis(1), 0.0);
+        List<GossipService> gossipServices = new ArrayList<>(nodeCount);
+        long wallStart = System.nanoTime();
+
+        // 各ノードは直前のノードに接続し，ネットワークを構築する
+        for (int i = 0; i < nodeCount; i++) {
+            GossipService gossipService = i == 0
+                    ? new GossipService(Simulation.addressOf(i), gossipConfig, null, simulation)
+                    : new GossipService(Simulation.addressOf(i), Simulation.addressOf(i - 1),
+                            gossipConfig, null, simulation);
+            gossipService.start();
+            gossipServices.add(gossipService);
+        }
+
+        System.out.println("time(s),min,average,converged");
+        for (int second = 1; second <= seconds; second++) {
+            simulation.runFor(Duration.ofSeconds(1));
+            int min = Integer.MAX_VALUE;
+            long total = 0;
+            int converged = 0;
+            for (GossipService gossipService : gossipServices) {
+                int known = gossipService.getMemberCount();
+                min = Math.min(min, known);
+                total += known;
+                if (known == nodeCount) {
+                    converged++;
+                }
+            }
+            System.out.println(second + "," + min + "," + (total / nodeCount) + "," + converged);
+        }
+
+        long wallMillis = (System.nanoTime() - wallStart) / 1_000_000L;
+        System.out.println("events=" + simulation.getProcessedEvents()
+                + " packets=" + simulation.getNetwork().getSentPackets()
+                + " bytes=" + simulation.getNetwork().getSentBytes()
+                + " wall=" + wallMillis + "ms");
+    }
+}
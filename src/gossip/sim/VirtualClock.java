@@ -0,0 +1,33 @@
+package gossip.sim;
+
+import gossip.clock.Clock;
+
+/**
+ * シミュレーションで使用する仮想的な時刻
+ * EventSchedulerがイベントを処理する際に時刻を進める．
+ */
+public class VirtualClock implements Clock {
+    private long nanos = 0;// シミュレーション開始からの経過時間（ナノ秒）
+
+    @Override
+    public long currentTimeMillis() {
+        return nanos / 1_000_000L;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    /**
+     * 時刻を進めるメソッド
+     * 過去の時刻を指定した場合は何もしない．
+     *
+     * @param newNanos
+     */
+    void advanceTo(long newNanos) {
+        if (newNanos > nanos) {
+            nanos = newNanos;
+        }
+    }
+}
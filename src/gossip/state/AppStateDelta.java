@@ -0,0 +1,44 @@
+package gossip.state;
+
+import java.util.List;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+
+/**
+ * 1つのノードのアプリケーションの状態のうち，ある版番号より新しいキーをまとめたもの
+ * キーは版番号の小さい順に並べる．途中で打ち切っても，受信側は受け取った最大の版番号までを全て保持していることになる．
+ */
+public class AppStateDelta implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final InetSocketAddress owner;// 状態を所有するノード
+    private final List<AppStateEntry> entries;// 版番号の小さい順のキー
+
+    public AppStateDelta(InetSocketAddress owner, List<AppStateEntry> entries) {
+        this.owner = owner;
+        this.entries = entries;
+    }
+
+    /**
+     * 状態を所有するノードのゲッター
+     *
+     * @return
+     */
+    public InetSocketAddress getOwner() {
+        return owner;
+    }
+
+    /**
+     * 版番号の小さい順のキーのゲッター
+     *
+     * @return
+     */
+    public List<AppStateEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return owner + " " + entries;
+    }
+}
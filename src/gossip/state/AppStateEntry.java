@@ -0,0 +1,63 @@
+package gossip.state;
+
+import java.io.Serializable;
+
+/**
+ * ノードが公開するアプリケーションの状態の1つのキーと値
+ * 版番号は所有するノードが値を変更するたびに増やす番号で，大きい方を新しい値として採用する．
+ * 削除されたキーは値をnullとして保持し，削除も他のノードに伝える．
+ */
+public class AppStateEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String key;// キー
+    private final String value;// 値．削除された場合はnull
+    private final long version;// 版番号
+
+    public AppStateEntry(String key, String value, long version) {
+        this.key = key;
+        this.value = value;
+        this.version = version;
+    }
+
+    /**
+     * キーのゲッター
+     *
+     * @return
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 値のゲッター
+     *
+     * @return 削除された場合はnull
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 版番号のゲッター
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 削除されたキーか判定するメソッド
+     *
+     * @return
+     */
+    public boolean isDeleted() {
+        return value == null;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + value + "@" + version;
+    }
+}
@@ -0,0 +1,208 @@
+package gossip.state;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 各ノードが公開するアプリケーションの状態を保持するクラス
+ * ノードごとにキーと値の表と，受け取ったキーの最大の版番号を保持する．
+ * キーごとに版番号の大きい値を採用するため，受信の順序や重複によらず同じ状態に収束する．
+ * 自身の状態のみput()で変更でき，他のノードの状態はmerge()で受信した差分を統合する．
+ */
+public class AppStateStore {
+    private static final Comparator<AppStateEntry> BY_VERSION = Comparator.comparingLong(AppStateEntry::getVersion);
+
+    private final InetSocketAddress self;// 自身のノードのアドレス
+    private final ConcurrentHashMap<InetSocketAddress, OwnerState> owners = new ConcurrentHashMap<>();
+    private final LongAdder updates = new LongAdder();// 値を変更した回数
+
+    public AppStateStore(InetSocketAddress self) {
+        this.self = self;
+    }
+
+    /**
+     * 自身の状態のキーに値を設定するメソッド
+     *
+     * @param key
+     * @param value 削除する場合はnull
+     * @return 設定したキー
+     */
+    public AppStateEntry put(String key, String value) {
+        OwnerState state = owners.computeIfAbsent(self, owner -> new OwnerState());
+        updates.increment();
+        synchronized (state) {
+            return state.put(key, value);
+        }
+    }
+
+    /**
+     * put()とmerge()で値を変更した回数を返すメソッド
+     *
+     * @return
+     */
+    public long getUpdateCount() {
+        return updates.sum();
+    }
+
+    /**
+     * ノードの状態について，受け取ったキーの最大の版番号を返すメソッド
+     *
+     * @param owner
+     * @return 状態を保持していない場合は0
+     */
+    public long getVersion(InetSocketAddress owner) {
+        OwnerState state = owners.get(owner);
+        return state != null ? state.version : 0;
+    }
+
+    /**
+     * ノードの状態のキーの値を返すメソッド
+     *
+     * @param owner
+     * @param key
+     * @return 保持していない場合や削除された場合はnull
+     */
+    public String get(InetSocketAddress owner, String key) {
+        OwnerState state = owners.get(owner);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            AppStateEntry entry = state.entries.get(key);
+            return entry != null ? entry.getValue() : null;
+        }
+    }
+
+    /**
+     * ノードの状態の全てのキーと値を返すメソッド
+     * 削除されたキーは含まない．
+     *
+     * @param owner
+     * @return 変更できない表
+     */
+    public Map<String, String> getAll(InetSocketAddress owner) {
+        OwnerState state = owners.get(owner);
+        if (state == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> values = new HashMap<>();
+        synchronized (state) {
+            for (AppStateEntry entry : state.entries.values()) {
+                if (!entry.isDeleted()) {
+                    values.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * ノードの状態のうち，版番号がsinceより大きいキーを版番号の小さい順に返すメソッド
+     *
+     * @param owner
+     * @param since
+     * @return
+     */
+    public List<AppStateEntry> entriesSince(InetSocketAddress owner, long since) {
+        OwnerState state = owners.get(owner);
+        if (state == null) {
+            return Collections.emptyList();
+        }
+        List<AppStateEntry> entries = new ArrayList<>();
+        synchronized (state) {
+            if (state.version <= since) {
+                return entries;
+            }
+            for (AppStateEntry entry : state.entries.values()) {
+                if (entry.getVersion() > since) {
+                    entries.add(entry);
+                }
+            }
+        }
+        entries.sort(BY_VERSION);
+        return entries;
+    }
+
+    /**
+     * 受信した差分を統合するメソッド
+     * 保持している値より新しいキーのみを採用する．
+     * 自身の状態の差分は，再起動前に公開していた古い状態であるため採用せず，
+     * 版番号を差分より大きくしたうえで現在の値や削除を公開し直す．
+     *
+     * @param delta
+     * @return 値を更新したキー．自身の状態の場合は公開し直したキー
+     */
+    public List<AppStateEntry> merge(AppStateDelta delta) {
+        List<AppStateEntry> entries = delta.getEntries();
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        OwnerState state = owners.computeIfAbsent(delta.getOwner(), owner -> new OwnerState());
+        List<AppStateEntry> updated = new ArrayList<>();
+        synchronized (state) {
+            if (delta.getOwner().equals(self)) {
+                // 公開し直すキーの版番号が，受信した全てのキーより大きくなるようにする
+                List<AppStateEntry> stale = new ArrayList<>();
+                for (AppStateEntry entry : entries) {
+                    AppStateEntry current = state.entries.get(entry.getKey());
+                    if (current == null || current.getVersion() < entry.getVersion()) {
+                        state.version = Math.max(state.version, entry.getVersion());
+                        stale.add(entry);
+                    }
+                }
+                for (AppStateEntry entry : stale) {
+                    AppStateEntry current = state.entries.get(entry.getKey());
+                    updated.add(state.put(entry.getKey(), current != null ? current.getValue() : null));
+                }
+                updates.add(updated.size());
+                return updated;
+            }
+            for (AppStateEntry entry : entries) {
+                AppStateEntry current = state.entries.get(entry.getKey());
+                if (current == null || current.getVersion() < entry.getVersion()) {
+                    state.entries.put(entry.getKey(), entry);
+                    updated.add(entry);
+                }
+                state.version = Math.max(state.version, entry.getVersion());
+            }
+        }
+        updates.add(updated.size());
+        return updated;
+    }
+
+    /**
+     * 削除したノードの状態を破棄するメソッド
+     *
+     * @param owner
+     */
+    public void remove(InetSocketAddress owner) {
+        if (!owner.equals(self)) {
+            owners.remove(owner);
+        }
+    }
+
+    /**
+     * 1つのノードの状態
+     */
+    private static class OwnerState {
+        final Map<String, AppStateEntry> entries = new HashMap<>();
+        volatile long version = 0;// 受け取ったキーの最大の版番号
+
+        /**
+         * 版番号を1つ増やしてキーを設定するメソッド
+         */
+        AppStateEntry put(String key, String value) {
+            AppStateEntry entry = new AppStateEntry(key, value, version + 1);
+            entries.put(key, entry);
+            version = entry.getVersion();
+            return entry;
+        }
+    }
+}
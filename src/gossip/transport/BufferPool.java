@@ -0,0 +1,72 @@
+package gossip.transport;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 受信に使用するダイレクトバッファを再利用するプール
+ * ダイレクトバッファは確保と解放のコストが大きいため，受信処理の開始時に取得し，終了時に返却する．
+ * 返却と取得で新たなオブジェクトを生成しないように，配列をスタックとして使用する．
+ */
+public class BufferPool {
+    private static final BufferPool DEFAULT = new BufferPool(Transport.MAX_DATAGRAM_SIZE, 64);
+
+    private final int bufferSize;// バッファ1つのバイト数
+    private final ByteBuffer[] buffers;// 返却されたバッファ
+    private int size = 0;
+
+    /**
+     * @param bufferSize
+     * @param maxPooled  保持しておくバッファの最大数．これを超えて返却されたバッファはGCに任せる
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ByteBuffer[maxPooled];
+    }
+
+    /**
+     * UDPの最大サイズのバッファを提供する共有のプールを返すメソッド
+     *
+     * @return
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * バッファを取得するメソッド
+     * プールが空の場合は新たに確保する．
+     *
+     * @return positionが0，limitが容量のバッファ
+     */
+    public ByteBuffer acquire() {
+        synchronized (this) {
+            if (size > 0) {
+                ByteBuffer buffer = buffers[--size];
+                buffers[size] = null;
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * 使用を終えたバッファを返却するメソッド
+     *
+     * @param buffer
+     */
+    public synchronized void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize && size < buffers.length) {
+            buffers[size++] = buffer;
+        }
+    }
+
+    /**
+     * バッファ1つのバイト数を返すメソッド
+     *
+     * @return
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,79 @@
+package gossip.transport;
+
+import gossip.executor.GossipExecutor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Future;
+
+/**
+ * ブロッキングのDatagramSocketを使用するTransport
+ * ノードごとに1つの受信処理がパケットを待ち受ける．
+ */
+public class DatagramSocketTransport implements Transport {
+    private final DatagramSocket datagramSocket;// UDP通信を行うソケットクラス
+    private final DatagramPacket receivePacket;// 受け取ったパケット
+    private final ByteBuffer receivedBuffer;// receivePacketの配列を包むバッファ．パケットごとに範囲を設定する
+    private final GossipExecutor executor;
+    private final int port;
+    private Future<?> receiver;
+
+    public DatagramSocketTransport(int portToListen, GossipExecutor executor) throws SocketException {
+        this.datagramSocket = new DatagramSocket(portToListen);
+        // 送信側の設定によらず切り詰められないように，UDPの最大サイズで受信する
+        byte[] data = new byte[MAX_DATAGRAM_SIZE];
+        this.receivePacket = new DatagramPacket(data, data.length);
+        this.receivedBuffer = ByteBuffer.wrap(data);
+        this.executor = executor;
+        this.port = portToListen;
+    }
+
+    @Override
+    public void start(PacketHandler handler) {
+        receiver = executor.startBlockingLoop("gossip-receiver-" + port, () -> {
+            try {
+                // UDPパケットを待ち受け，受信したらデータをreceivePacketに格納する
+                // 受信したバイト数で長さが上書きされるため，毎回元の長さに戻す
+                receivePacket.setLength(MAX_DATAGRAM_SIZE);
+                datagramSocket.receive(receivePacket);
+            } catch (IOException e) {
+                if (datagramSocket.isClosed()) {
+                    // close()により受信待ちが解除された場合は受信処理を終了する
+                    Thread.currentThread().interrupt();
+                } else {
+                    e.printStackTrace();
+                }
+                return;
+            }
+            receivedBuffer.limit(receivePacket.getLength()).position(0);
+            try {
+                handler.onPacket(receivedBuffer, (InetSocketAddress) receivePacket.getSocketAddress());
+            } catch (RuntimeException | Error e) {
+                // 1つのパケットの処理の失敗で受信処理を終了しない
+                e.printStackTrace();
+            }
+        });
+    }
+
+    @Override
+    public boolean send(InetSocketAddress target, ByteBuffer data) throws IOException {
+        // パケットはデータ，データ長，ターゲットのIPアドレス，ターゲットのポート番号を保持する．
+        DatagramPacket packet = new DatagramPacket(data.array(), data.arrayOffset() + data.position(),
+                data.remaining(), target);
+        // ブロッキングのため，送信バッファに空きができるまで待つ
+        datagramSocket.send(packet);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        datagramSocket.close();
+        if (receiver != null) {
+            receiver.cancel(true);
+        }
+    }
+}
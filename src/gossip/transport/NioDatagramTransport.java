@@ -0,0 +1,43 @@
+package gossip.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * ノンブロッキングのDatagramChannelを使用するTransport
+ * 受信はNioEventLoopGroupのイベントループが行い，ノードごとのスレッドを必要としない．
+ */
+public class NioDatagramTransport implements Transport {
+    private final DatagramChannel channel;
+    private final NioEventLoop eventLoop;// このチャネルを担当するイベントループ
+
+    public NioDatagramTransport(int portToListen, NioEventLoopGroup group) throws IOException {
+        this.channel = DatagramChannel.open();
+        try {
+            channel.bind(new InetSocketAddress(portToListen));
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.eventLoop = group.next();
+    }
+
+    @Override
+    public void start(PacketHandler handler) {
+        eventLoop.register(channel, handler);
+    }
+
+    @Override
+    public boolean send(InetSocketAddress target, ByteBuffer data) throws IOException {
+        // ノンブロッキングのため，ソケットの送信バッファが満杯の場合は0が返り，パケットは送信されない
+        return channel.send(data, target) > 0;
+    }
+
+    @Override
+    public void close() {
+        eventLoop.deregister(channel);
+    }
+}
@@ -0,0 +1,158 @@
+package gossip.transport;
+
+import java.util.Queue;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.SocketAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Selector;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 1つのスレッドで複数のDatagramChannelの受信を処理するイベントループ
+ * チャネルの登録と解除はキューを介してイベントループのスレッドで行う．
+ */
+public class NioEventLoop {
+    private static final int MAX_READS_PER_KEY = 64;// 他のチャネルを待たせないための1回あたりの読み込み上限
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    // カーネルから直接書き込まれ，ヒープへの複製が不要なダイレクトバッファ
+    private final ByteBuffer receiveBuffer = BufferPool.getDefault().acquire();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean running = true;
+
+    public NioEventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * チャネルを登録し，受信したパケットをhandlerに渡すようにするメソッド
+     *
+     * @param channel
+     * @param handler
+     */
+    public void register(DatagramChannel channel, PacketHandler handler) {
+        execute(() -> {
+            try {
+                channel.register(selector, SelectionKey.OP_READ, handler);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * チャネルの登録を解除して閉じるメソッド
+     * 処理中のパケットがある場合は，その処理の完了後に閉じる．
+     *
+     * @param channel
+     */
+    public void deregister(DatagramChannel channel) {
+        execute(() -> {
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+        });
+    }
+
+    /**
+     * イベントループを停止し，登録されている全てのチャネルを閉じるメソッド
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                terminated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void execute(Runnable task) {
+        pendingTasks.offer(task);
+        selector.wakeup();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                runPendingTasks();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.isValid() && key.isReadable()) {
+                        read(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            runPendingTasks();
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+            BufferPool.getDefault().release(receiveBuffer);
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * 読み込み可能になったチャネルから，受信済みのパケットを全て読み込むメソッド
+     *
+     * @param key
+     */
+    private void read(SelectionKey key) {
+        DatagramChannel channel = (DatagramChannel) key.channel();
+        PacketHandler handler = (PacketHandler) key.attachment();
+        for (int i = 0; i < MAX_READS_PER_KEY; i++) {
+            receiveBuffer.clear();
+            SocketAddress sender;
+            try {
+                sender = channel.receive(receiveBuffer);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            if (sender == null) {// 受信済みのパケットがない場合
+                return;
+            }
+            receiveBuffer.flip();
+            try {
+                handler.onPacket(receiveBuffer, (InetSocketAddress) sender);
+            } catch (RuntimeException | Error e) {
+                // 1つのパケットの処理の失敗でイベントループを終了して全てのチャネルを閉じない
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package gossip.transport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 複数のNioEventLoopをまとめて管理するクラス
+ * チャネルは登録時にラウンドロビンでいずれかのイベントループに割り当てられる．
+ */
+public class NioEventLoopGroup {
+    private static volatile NioEventLoopGroup defaultGroup;
+
+    private final NioEventLoop[] eventLoops;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    public NioEventLoopGroup(int size) throws IOException {
+        eventLoops = new NioEventLoop[size];
+        for (int i = 0; i < size; i++) {
+            eventLoops[i] = new NioEventLoop("gossip-event-loop-" + (i + 1));
+        }
+    }
+
+    /**
+     * プロセス全体で共有する，CPUコア数のイベントループを持つグループを返すメソッド
+     *
+     * @return
+     */
+    public static NioEventLoopGroup getDefault() {
+        NioEventLoopGroup group = defaultGroup;
+        if (group == null) {
+            synchronized (NioEventLoopGroup.class) {
+                group = defaultGroup;
+                if (group == null) {
+                    try {
+                        group = new NioEventLoopGroup(Runtime.getRuntime().availableProcessors());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    defaultGroup = group;
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * 次にチャネルを割り当てるイベントループを返すメソッド
+     *
+     * @return
+     */
+    public NioEventLoop next() {
+        return eventLoops[Math.floorMod(nextIndex.getAndIncrement(), eventLoops.length)];
+    }
+
+    /**
+     * 全てのイベントループを停止するメソッド
+     */
+    public void shutdown() {
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package gossip.transport;
+
+import java.nio.ByteBuffer;
+import java.net.InetSocketAddress;
+
+/**
+ * 受信したパケットを処理するインターフェース
+ */
+public interface PacketHandler {
+    /**
+     * パケットを受信した際に呼び出されるメソッド
+     * packetのpositionからlimitまでが受信したデータであり，呼び出し後に再利用される．
+     *
+     * @param packet
+     * @param sender
+     */
+    void onPacket(ByteBuffer packet, InetSocketAddress sender);
+}
@@ -0,0 +1,36 @@
+package gossip.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.InetSocketAddress;
+
+/**
+ * ノード間でパケットを送受信する通信手段を表すインターフェース
+ */
+public interface Transport {
+    int MAX_DATAGRAM_SIZE = 65507;// UDPで送信できる最大バイト数
+
+    /**
+     * パケットの受信を開始するメソッド
+     * 受信したパケットはhandlerに渡される．
+     *
+     * @param handler
+     */
+    void start(PacketHandler handler);
+
+    /**
+     * パケットを送信するメソッド
+     * dataのpositionからlimitまでを1つのパケットとして送信する．
+     *
+     * @param target
+     * @param data
+     * @return 送信した場合はtrue，送信バッファが満杯でパケットを破棄した場合はfalse
+     * @throws IOException
+     */
+    boolean send(InetSocketAddress target, ByteBuffer data) throws IOException;
+
+    /**
+     * 受信を停止し，通信に使用している資源を解放するメソッド
+     */
+    void close();
+}
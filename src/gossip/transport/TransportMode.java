@@ -0,0 +1,38 @@
+package gossip.transport;
+
+import gossip.executor.GossipExecutor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * ノード間の通信方式
+ */
+public enum TransportMode {
+    NIO_EVENT_LOOP, // ノンブロッキングのDatagramChannelを共有イベントループで処理する
+    BLOCKING_SOCKET;// ノードごとのスレッドでDatagramSocketの受信を待つ
+
+    /**
+     * 通信方式に対応するTransportを作成するメソッド
+     *
+     * 受信はUDPの最大サイズまで行うため，送信するパケットの大きさは指定しない．
+     *
+     * @param port
+     * @param executor
+     * @return
+     */
+    public Transport createTransport(int port, GossipExecutor executor) {
+        try {
+            switch (this) {
+                case BLOCKING_SOCKET:
+                    return new DatagramSocketTransport(port, executor);
+                case NIO_EVENT_LOOP:
+                default:
+                    return new NioDatagramTransport(port, NioEventLoopGroup.getDefault());
+            }
+        } catch (IOException e) {
+            System.out.println("Could not create socket connection");
+            throw new UncheckedIOException(e);
+        }
+    }
+}